@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Notifies a listener on an executor. Notifications of the same listener never overlap and a burst of notifications
+ * requested while one is pending or running is coalesced into a single one, which reads the latest configuration.
+ */
+final class AsyncListenerNotifier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncListenerNotifier.class);
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int RUNNING = 2;
+    private static final int RUNNING_OUTDATED = 3;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private final ConfigChangeListener listener;
+    private final Executor executor;
+
+    AsyncListenerNotifier(ConfigChangeListener listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    void notifyChange(Coffig coffig) {
+        while (true) {
+            switch (state.get()) {
+                case IDLE:
+                    if (state.compareAndSet(IDLE, SCHEDULED)) {
+                        try {
+                            executor.execute(() -> run(coffig));
+                        } catch (RejectedExecutionException e) {
+                            // The change is not notified but the next one will be scheduled again
+                            state.set(IDLE);
+                            LOGGER.warn("Notification of configuration change listener {} was rejected", listener, e);
+                        } catch (RuntimeException e) {
+                            state.set(IDLE);
+                            throw e;
+                        }
+                        return;
+                    }
+                    break;
+                case RUNNING:
+                    // The running notification may have read the configuration before the change
+                    if (state.compareAndSet(RUNNING, RUNNING_OUTDATED)) {
+                        return;
+                    }
+                    break;
+                default:
+                    // A notification that will see the change is already pending
+                    return;
+            }
+        }
+    }
+
+    private void run(Coffig coffig) {
+        state.set(RUNNING);
+        do {
+            try {
+                listener.onChange(coffig);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Configuration change listener {} failed", listener, e);
+            } catch (Error e) {
+                state.set(IDLE);
+                throw e;
+            }
+        } while (!state.compareAndSet(RUNNING, IDLE) && state.compareAndSet(RUNNING_OUTDATED, RUNNING));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig;
+
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically checks if a configuration is dirty and updates it. Being the only thread updating the configuration,
+ * readers never have to check the configuration state nor wait for an update.
+ */
+final class BackgroundRefresher implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundRefresher.class);
+    private final Coffig coffig;
+    private final long periodMillis;
+    private Thread refreshThread;
+
+    BackgroundRefresher(Coffig coffig, Duration period) {
+        this.coffig = coffig;
+        this.periodMillis = Math.max(1, period.toMillis());
+    }
+
+    synchronized void start() {
+        if (refreshThread == null) {
+            refreshThread = new Thread(this, "cfgRefresher");
+            refreshThread.setDaemon(true);
+            refreshThread.start();
+            LOGGER.debug("Background refresh started");
+        }
+    }
+
+    /**
+     * Signals the refresh thread to stop without waiting for it, so it can be called while holding the configuration
+     * lock. The returned thread must then be passed to {@link #awaitTermination(Thread)} once the lock is released,
+     * since the refresh thread may be waiting for it to finish an update.
+     *
+     * @return the stopped thread or null if the refresher was not started.
+     */
+    synchronized Thread stop() {
+        Thread stoppedThread = refreshThread;
+        if (stoppedThread != null) {
+            refreshThread = null;
+            notifyAll();
+        }
+        return stoppedThread;
+    }
+
+    /**
+     * Waits for a thread returned by {@link #stop()} to terminate.
+     *
+     * @param stoppedThread the stopped thread or null.
+     */
+    static void awaitTermination(Thread stoppedThread) {
+        if (stoppedThread != null) {
+            try {
+                stoppedThread.join(1000);
+                if (stoppedThread.isAlive()) {
+                    LOGGER.warn("Background refresh is still running after being stopped");
+                } else {
+                    LOGGER.debug("Background refresh stopped");
+                }
+            } catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while stopping background refresh");
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        Thread currentThread = Thread.currentThread();
+        while (awaitNextRefresh(currentThread)) {
+            try {
+                if (coffig.isDirty()) {
+                    coffig.update();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Failed to refresh configuration in background", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the refresh period, without interrupting the thread to stop it since an interrupt could also abort
+     * the I/O of providers during an update.
+     */
+    private synchronized boolean awaitNextRefresh(Thread currentThread) {
+        if (refreshThread == currentThread) {
+            try {
+                wait(periodMillis);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return refreshThread == currentThread;
+    }
+}
@@ -7,30 +7,40 @@
  */
 package org.seedstack.coffig;
 
+import org.seedstack.coffig.evaluator.EvaluationContext;
 import org.seedstack.coffig.internal.ConfigurationErrorCode;
 import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.node.ImmutableTreeNode;
 import org.seedstack.coffig.node.MapNode;
-import org.seedstack.coffig.node.UnmodifiableTreeNode;
+import org.seedstack.coffig.node.Path;
+import org.seedstack.coffig.node.TreeDiff;
 import org.seedstack.coffig.spi.ConfigurationMapper;
 import org.seedstack.coffig.spi.ConfigurationProcessor;
 import org.seedstack.coffig.spi.ConfigurationProvider;
 import org.seedstack.coffig.spi.ConfigurationWatcher;
+import org.seedstack.coffig.spi.ModificationCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import static org.seedstack.shed.reflect.Classes.instantiateDefault;
 import static org.seedstack.shed.reflect.Types.rawClassOf;
@@ -42,9 +52,22 @@ public class Coffig {
     private final ConfigurationProcessor processor;
     private final Map<String, List<ConfigChangeListener>> listeners = new TreeMap<>(Comparator.reverseOrder());
     private final Set<ConfigurationWatcher> configurationWatchers = new HashSet<>();
+    private final Map<ConfigChangeListener, AsyncListenerNotifier> asyncNotifiers = new IdentityHashMap<>();
+    // The paths referenced by listened paths, resolved on registration and recorded again when they are read
+    private final ConcurrentMap<String, Set<String>> readReferences = new ConcurrentHashMap<>();
+    // The listened paths whose reads are tracked, replaced on each change so readers don't need the lock
+    private volatile Set<String> trackedPaths = Collections.emptySet();
+    private Executor listenerExecutor;
     private boolean toStringMapping = true;
+    private boolean mappingCacheEnabled = true;
+    private volatile boolean dirtyTracked;
     private volatile boolean dirty = true;
-    private volatile TreeNode configurationTree = new MapNode();
+    private volatile long checkedModifications;
+    // The tree and its mapping cache are published together so readers always see a consistent pair
+    private volatile Snapshot snapshot = new Snapshot(ImmutableTreeNode.of(new MapNode()));
+    private volatile Duration backgroundRefreshPeriod;
+    private BackgroundRefresher backgroundRefresher;
+    private boolean watching;
 
     Coffig(ConfigurationMapper mapper, ConfigurationProvider provider, ConfigurationProcessor processor) {
         LOGGER.debug("Creating new configuration");
@@ -65,6 +88,14 @@ public class Coffig {
             this.processor.initialize(this);
             configurationWatchers.addAll(this.processor.watchers());
         }
+
+        this.dirtyTracked = computeDirtyTracked();
+    }
+
+    private boolean computeDirtyTracked() {
+        return (mapper == null || mapper.isDirtyTracked())
+                && (provider == null || provider.isDirtyTracked())
+                && (processor == null || processor.isDirtyTracked());
     }
 
     public boolean isToStringMapping() {
@@ -75,6 +106,60 @@ public class Coffig {
         this.toStringMapping = toStringMapping;
     }
 
+    public boolean isMappingCacheEnabled() {
+        return mappingCacheEnabled;
+    }
+
+    public void setMappingCacheEnabled(boolean mappingCacheEnabled) {
+        this.mappingCacheEnabled = mappingCacheEnabled;
+    }
+
+    public Executor getListenerExecutor() {
+        return listenerExecutor;
+    }
+
+    /**
+     * Sets the executor used to notify listeners. When set, listeners are notified asynchronously after refreshes,
+     * one notification at a time for each listener, and the notifications requested while a previous one is pending
+     * are coalesced. When null, listeners are notified synchronously by the thread doing the refresh.
+     *
+     * @param listenerExecutor the executor or null.
+     */
+    public synchronized void setListenerExecutor(Executor listenerExecutor) {
+        this.listenerExecutor = listenerExecutor;
+        asyncNotifiers.clear();
+    }
+
+    public Duration getBackgroundRefreshPeriod() {
+        return backgroundRefreshPeriod;
+    }
+
+    /**
+     * Sets the period at which a background thread checks if the configuration is dirty and updates it. When set,
+     * readers never check the dirty state of the configuration components nor wait for an update: they read the last
+     * published tree, which is replaced atomically by the background thread. The background thread runs while the
+     * configuration is watched. When null, the configuration is updated by the first reader finding it dirty.
+     *
+     * @param backgroundRefreshPeriod the refresh period or null.
+     */
+    public void setBackgroundRefreshPeriod(Duration backgroundRefreshPeriod) {
+        Thread stoppedThread = null;
+        synchronized (this) {
+            BackgroundRefresher previous = this.backgroundRefresher;
+            this.backgroundRefreshPeriod = backgroundRefreshPeriod;
+            this.backgroundRefresher = backgroundRefreshPeriod == null ? null : new BackgroundRefresher(this,
+                    backgroundRefreshPeriod);
+            if (previous != null) {
+                stoppedThread = previous.stop();
+            }
+            if (watching && backgroundRefresher != null) {
+                backgroundRefresher.start();
+            }
+        }
+        // The stopped thread may be waiting for the lock to finish an update
+        BackgroundRefresher.awaitTermination(stoppedThread);
+    }
+
     public static CoffigBuilder builder() {
         return new CoffigBuilder();
     }
@@ -109,15 +194,35 @@ public class Coffig {
     }
 
     public synchronized void startWatching() {
+        watching = true;
         configurationWatchers.forEach(ConfigurationWatcher::startWatching);
+        if (backgroundRefresher != null) {
+            backgroundRefresher.start();
+        }
     }
 
-    public synchronized void stopWatching() {
-        configurationWatchers.forEach(ConfigurationWatcher::stopWatching);
+    public void stopWatching() {
+        Thread stoppedThread = null;
+        synchronized (this) {
+            watching = false;
+            if (backgroundRefresher != null) {
+                stoppedThread = backgroundRefresher.stop();
+            }
+            configurationWatchers.forEach(ConfigurationWatcher::stopWatching);
+        }
+        // The stopped thread may be waiting for the lock to finish an update
+        BackgroundRefresher.awaitTermination(stoppedThread);
     }
 
     public synchronized void registerListener(String path, ConfigChangeListener configChangeListener) {
         listeners.computeIfAbsent(path, key -> new ArrayList<>()).add(configChangeListener);
+        // The root path is affected by any change so its references don't need to be tracked
+        if (!path.isEmpty() && !trackedPaths.contains(path)) {
+            Set<String> paths = new HashSet<>(trackedPaths);
+            paths.add(path);
+            trackedPaths = paths;
+            recordReadReferences(path, resolveReferences(snapshot.tree, path));
+        }
     }
 
     public synchronized void unregisterListener(ConfigChangeListener configChangeListener) {
@@ -127,15 +232,88 @@ public class Coffig {
             if (listeners.getValue().remove(configChangeListener)) {
                 if (listeners.getValue().isEmpty()) {
                     it.remove();
+                    untrack(listeners.getKey());
                 }
+                asyncNotifiers.remove(configChangeListener);
                 break;
             }
         }
     }
 
+    private void untrack(String path) {
+        if (trackedPaths.contains(path)) {
+            Set<String> paths = new HashSet<>(trackedPaths);
+            paths.remove(path);
+            trackedPaths = paths;
+            readReferences.keySet().removeIf(readPath -> !overlapsAny(readPath, paths));
+        }
+    }
+
+    /**
+     * Resolves the paths referenced by the values of a listened subtree, so the listeners can be notified when they
+     * change even if the listened path was never read.
+     */
+    private Set<String> resolveReferences(TreeNode tree, String path) {
+        TreeNode listenedNode = tree.get(Path.of(path)).orElse(null);
+        if (mapper == null || listenedNode == null) {
+            return Collections.emptySet();
+        }
+        EvaluationContext evaluationContext = EvaluationContext.open(tree);
+        try {
+            resolveReferences(listenedNode);
+        } finally {
+            evaluationContext.close();
+        }
+        return evaluationContext.getReferences();
+    }
+
+    private void resolveReferences(TreeNode treeNode) {
+        switch (treeNode.type()) {
+            case MAP_NODE:
+            case ARRAY_NODE:
+                treeNode.nodes().forEach(this::resolveReferences);
+                break;
+            case VALUE_NODE:
+                if (!treeNode.isEmpty()) {
+                    try {
+                        mapper.map(treeNode, String.class);
+                    } catch (ConfigurationException e) {
+                        // References are recorded as the value is evaluated, before it fails to map
+                        LOGGER.debug("Cannot resolve references of configuration value: {}", e.getMessage());
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported node type " + treeNode.type());
+        }
+    }
+
+    /**
+     * Refreshes the configuration from scratch, invalidating every cached state of the configuration components and
+     * calling every provider regardless of their dirty status.
+     */
     public synchronized void refresh() {
+        if (mapper != null) {
+            mapper.invalidate();
+        }
+        if (provider != null) {
+            provider.invalidate();
+        }
+        if (processor != null) {
+            processor.invalidate();
+        }
+        update();
+    }
+
+    /**
+     * Updates the configuration, only calling the providers that are dirty if the provider supports it.
+     */
+    synchronized void update() {
         LOGGER.debug("Refreshing configuration");
 
+        // Components becoming dirty from now on will be seen by the next check
+        long modifications = ModificationCounter.current();
+
         MapNode pendingConfigurationTree;
         if (provider != null) {
             pendingConfigurationTree = provider.provide();
@@ -147,17 +325,30 @@ public class Coffig {
             processor.process(pendingConfigurationTree);
         }
 
-        TreeNode oldConfigurationTree = configurationTree;
-        configurationTree = UnmodifiableTreeNode.of(pendingConfigurationTree);
+        // Components may have changed since the last check, so whether they are all tracked is checked again
+        dirtyTracked = computeDirtyTracked();
+
+        TreeNode oldConfigurationTree = snapshot.tree;
+        TreeNode configurationTree = ImmutableTreeNode.of(pendingConfigurationTree, oldConfigurationTree);
+        snapshot = new Snapshot(configurationTree);
+        checkedModifications = modifications;
         dirty = false;
 
+        TreeDiff treeDiff = TreeDiff.compute(oldConfigurationTree, configurationTree);
+        if (treeDiff.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("Configuration changes: {}", treeDiff);
+
+        List<String> affectedReads = listeners.isEmpty() ? Collections.emptyList() : findAffectedReads(treeDiff);
         String lastPath = null;
         for (Map.Entry<String, List<ConfigChangeListener>> entry : listeners.entrySet()) {
             String path = entry.getKey();
             if (lastPath != null && lastPath.startsWith(path)
-                    || !Objects.equals(oldConfigurationTree.get(path), configurationTree.get(path))) {
+                    || treeDiff.affects(path)
+                    || overlapsAny(path, affectedReads)) {
                 for (ConfigChangeListener listener : entry.getValue()) {
-                    listener.onChange(this);
+                    notifyListener(listener);
                 }
                 lastPath = path;
             } else {
@@ -166,14 +357,93 @@ public class Coffig {
         }
     }
 
+    private void notifyListener(ConfigChangeListener listener) {
+        if (listenerExecutor == null) {
+            listener.onChange(this);
+        } else {
+            asyncNotifiers.computeIfAbsent(listener, key -> new AsyncListenerNotifier(key, listenerExecutor))
+                    .notifyChange(this);
+        }
+    }
+
+    /**
+     * Finds the read paths whose last evaluation referenced a path affected by the specified changes. References are
+     * recorded when values are mapped, so nothing is evaluated here.
+     */
+    private List<String> findAffectedReads(TreeDiff treeDiff) {
+        List<String> affectedReads = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : readReferences.entrySet()) {
+            for (String reference : entry.getValue()) {
+                if (treeDiff.affects(reference)) {
+                    affectedReads.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return affectedReads;
+    }
+
+    /**
+     * Checks if a path contains or is contained by one of the specified paths.
+     */
+    private boolean overlapsAny(String path, Collection<String> otherPaths) {
+        for (String otherPath : otherPaths) {
+            if (isWithin(otherPath, path) || isWithin(path, otherPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWithin(String path, String parentPath) {
+        if (parentPath.isEmpty()) {
+            return true;
+        } else if (!path.startsWith(parentPath)) {
+            return false;
+        } else if (path.length() == parentPath.length()) {
+            return true;
+        }
+        char next = path.charAt(parentPath.length());
+        return next == '.' || next == '[';
+    }
+
     public Coffig fork() {
         LOGGER.debug("Forking configuration");
 
-        return new Coffig(
+        Coffig fork = new Coffig(
                 mapper == null ? null : (ConfigurationMapper) mapper.fork(),
                 provider == null ? null : (ConfigurationProvider) provider.fork(),
                 processor == null ? null : (ConfigurationProcessor) processor.fork()
         );
+        fork.setMappingCacheEnabled(mappingCacheEnabled);
+        fork.setListenerExecutor(listenerExecutor);
+        fork.setBackgroundRefreshPeriod(backgroundRefreshPeriod);
+        return fork;
+    }
+
+    /**
+     * Checks if the configuration must be updated. When all components track their dirty state, they are only asked
+     * for it if the {@link ModificationCounter} has changed since the last check. Whether all components are tracked
+     * is checked again on each update and each time the counter changes, which components becoming untracked must
+     * signal.
+     */
+    private boolean isStale() {
+        if (dirty) {
+            return true;
+        } else if (!dirtyTracked) {
+            return isDirty();
+        }
+        long modifications = ModificationCounter.current();
+        if (modifications == checkedModifications) {
+            return false;
+        } else if (isDirty()) {
+            return true;
+        } else {
+            // The modifications were made to other configurations or didn't make any component dirty
+            dirtyTracked = computeDirtyTracked();
+            checkedModifications = modifications;
+            return false;
+        }
     }
 
     public boolean isDirty() {
@@ -198,10 +468,12 @@ public class Coffig {
     }
 
     public Object getMandatory(Type configurationClass, String... path) {
-        return getOptional(configurationClass, path).orElseThrow(() ->
-                (ConfigurationException) ConfigurationException.createNew(ConfigurationErrorCode.PATH_NOT_FOUND)
-                        .put("path", path == null ? "null" : String.join(".", (CharSequence[]) path))
-        );
+        return getOptional(configurationClass, path).orElseThrow(() -> pathNotFound(path));
+    }
+
+    static ConfigurationException pathNotFound(String... path) {
+        return (ConfigurationException) ConfigurationException.createNew(ConfigurationErrorCode.PATH_NOT_FOUND)
+                .put("path", path == null ? "null" : String.join(".", (CharSequence[]) path));
     }
 
     @SuppressWarnings("unchecked")
@@ -210,32 +482,122 @@ public class Coffig {
     }
 
     public Optional<Object> getOptional(Type configurationType, String... path) {
-        LOGGER.trace(
-                "Accessing configuration path '" + Arrays.toString(path) + "' and mapping it to '" + configurationType
-                        .getTypeName() + "'");
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Accessing configuration path '" + Arrays.toString(path) + "' and mapping it to '"
+                    + configurationType.getTypeName() + "'");
+        }
+
+        return getOptional(currentSnapshot(), configurationType, path);
+    }
+
+    /**
+     * Returns an immutable view of the current configuration tree. All reads done through the snapshot see the same
+     * tree, regardless of the updates of the configuration, and never check if the configuration is dirty.
+     *
+     * @return the configuration snapshot.
+     */
+    public ConfigSnapshot snapshot() {
+        return new ConfigSnapshot(this, currentSnapshot());
+    }
+
+    /**
+     * Binds a configuration class to this configuration. The returned binding always provides the current
+     * configuration object, which is mapped once per configuration update (unless it depends on non-deterministic
+     * evaluations) and then read with a single volatile load.
+     *
+     * @param configurationClass the configuration class.
+     * @param path               the configuration path, which defaults to the path of the class.
+     * @param <T>                the type of the configuration object.
+     * @return the binding.
+     */
+    public <T> ConfigBinding<T> bind(Class<T> configurationClass, String... path) {
+        return new ConfigBinding<>(this, configurationClass, path);
+    }
+
+    Snapshot currentSnapshot() {
+        // In background refresh mode, only the initial update (or an explicit invalidation) is done by readers
+        if (backgroundRefreshPeriod != null ? dirty : isStale()) {
+            update();
+        }
+        return snapshot;
+    }
+
+    Optional<Object> getOptional(Snapshot currentSnapshot, Type configurationType, String... path) {
+        boolean evaluating = EvaluationContext.isOpen();
+        MappingKey mappingKey = null;
+        // Cached mappings don't keep the references of the mapped values, which reads done while evaluating need
+        if (mappingCacheEnabled && !evaluating) {
+            mappingKey = new MappingKey(configurationType, path);
+            Optional<Object> result = currentSnapshot.mappings.get(mappingKey);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        String joinedPath = joinPath(configurationType, path);
+        if (evaluating) {
+            // A read done while evaluating a value, like in a function, is a reference of that value
+            EvaluationContext.recordReference(joinedPath);
+        }
+        Optional<Object> result;
+        boolean deterministic;
+        // Evaluations must be done against the tree of the snapshot even if the configuration changed since
+        EvaluationContext evaluationContext = EvaluationContext.open(currentSnapshot.tree);
+        try {
+            result = map(currentSnapshot.tree, configurationType, joinedPath);
+        } finally {
+            deterministic = evaluationContext.close();
+        }
+        recordReadReferences(joinedPath, evaluationContext.getReferences());
 
-        if (isDirty()) {
-            refresh();
+        // Results depending on non-deterministic evaluations must be computed again on each access
+        if (mappingKey != null && deterministic) {
+            Optional<Object> previous = currentSnapshot.mappings.putIfAbsent(mappingKey.detach(), result);
+            if (previous != null) {
+                result = previous;
+            }
         }
+        return result;
+    }
 
+    private String joinPath(Type configurationType, String... path) {
         String joinedPath;
         if (path != null && path.length > 0) {
             joinedPath = String.join(".", (CharSequence[]) path);
         } else {
             joinedPath = pathOf(rawClassOf(configurationType));
         }
+        return joinedPath == null ? "" : joinedPath;
+    }
 
+    private Optional<Object> map(TreeNode tree, Type configurationType, String joinedPath) {
         Optional<TreeNode> resolvedTree;
-        if (joinedPath == null || joinedPath.isEmpty()) {
-            resolvedTree = Optional.of(this.configurationTree);
+        if (joinedPath.isEmpty()) {
+            resolvedTree = Optional.of(tree);
         } else {
-            resolvedTree = this.configurationTree.get(joinedPath);
+            resolvedTree = tree.get(Path.of(joinedPath));
         }
         return resolvedTree.map(treeNode -> mapper.map(treeNode, configurationType));
     }
 
+    /**
+     * Keeps the references of the last evaluation of a read path, so listeners can be notified when they change
+     * without evaluating the listened values again on update. Only the reads of listened paths are kept.
+     */
+    private void recordReadReferences(String readPath, Set<String> references) {
+        Set<String> paths = trackedPaths;
+        if (paths.isEmpty() || !overlapsAny(readPath, paths)) {
+            return;
+        }
+        if (references.isEmpty()) {
+            readReferences.remove(readPath);
+        } else {
+            readReferences.put(readPath, references);
+        }
+    }
+
     public TreeNode getTree() {
-        return configurationTree;
+        return snapshot.tree;
     }
 
     @Override
@@ -243,12 +605,12 @@ public class Coffig {
         if (toStringMapping) {
             return toMappedString();
         } else {
-            return "---\n" + configurationTree.toString();
+            return "---\n" + snapshot.tree.toString();
         }
     }
 
     public String toMappedString() {
-        return "---\n" + configurationTree.toMappedString(mapper);
+        return "---\n" + snapshot.tree.toMappedString(mapper);
     }
 
     public ConfigurationMapper getMapper() {
@@ -262,4 +624,49 @@ public class Coffig {
     public ConfigurationProcessor getProcessor() {
         return processor;
     }
+
+    static final class Snapshot {
+        private final TreeNode tree;
+        private final ConcurrentMap<MappingKey, Optional<Object>> mappings = new ConcurrentHashMap<>();
+
+        private Snapshot(TreeNode tree) {
+            this.tree = tree;
+        }
+
+        TreeNode getTree() {
+            return tree;
+        }
+    }
+
+    private static class MappingKey {
+        private final Type type;
+        private final String[] path;
+
+        private MappingKey(Type type, String[] path) {
+            this.type = type;
+            this.path = path;
+        }
+
+        private MappingKey detach() {
+            // The path array comes from the caller and could be altered after the call
+            return path == null ? this : new MappingKey(type, path.clone());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MappingKey that = (MappingKey) o;
+            return type.equals(that.type) && Arrays.equals(path, that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + Arrays.hashCode(path);
+        }
+    }
 }
@@ -13,12 +13,14 @@ import org.seedstack.coffig.mapper.EvaluatingMapper;
 import org.seedstack.coffig.mapper.ValidatingMapper;
 import org.seedstack.coffig.processor.CompositeProcessor;
 import org.seedstack.coffig.provider.CompositeProvider;
+import org.seedstack.coffig.provider.ProviderExecutors;
 import org.seedstack.coffig.spi.ConfigurationEvaluator;
 import org.seedstack.coffig.spi.ConfigurationMapper;
 import org.seedstack.coffig.spi.ConfigurationProcessor;
 import org.seedstack.coffig.spi.ConfigurationProvider;
 import org.seedstack.shed.ClassLoaders;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -26,6 +28,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 public class CoffigBuilder {
     private static final ClassLoader MOST_COMPLETE_CLASS_LOADER = ClassLoaders.findMostCompleteClassLoader
@@ -40,6 +43,11 @@ public class CoffigBuilder {
     private boolean evaluatorDetection = true;
     private boolean providerDetection = true;
     private boolean toStringMapping = true;
+    private boolean mappingCache = true;
+    private boolean eagerEvaluation = false;
+    private Executor providerExecutor = ProviderExecutors.shared();
+    private Executor listenerExecutor;
+    private Duration backgroundRefreshPeriod;
     private Object validatorFactory;
 
     CoffigBuilder() {
@@ -75,6 +83,45 @@ public class CoffigBuilder {
         return this;
     }
 
+    public CoffigBuilder disableMappingCache() {
+        mappingCache = false;
+        return this;
+    }
+
+    public CoffigBuilder enableEagerEvaluation() {
+        eagerEvaluation = true;
+        return this;
+    }
+
+    public CoffigBuilder disableParallelProviding() {
+        providerExecutor = ProviderExecutors.sequential();
+        return this;
+    }
+
+    public CoffigBuilder withProviderExecutor(Executor providerExecutor) {
+        if (providerExecutor == null) {
+            throw new NullPointerException("Provider executor cannot be null");
+        }
+        this.providerExecutor = providerExecutor;
+        return this;
+    }
+
+    public CoffigBuilder withListenerExecutor(Executor listenerExecutor) {
+        if (listenerExecutor == null) {
+            throw new NullPointerException("Listener executor cannot be null");
+        }
+        this.listenerExecutor = listenerExecutor;
+        return this;
+    }
+
+    public CoffigBuilder enableBackgroundRefresh(Duration period) {
+        if (period == null) {
+            throw new NullPointerException("Background refresh period cannot be null");
+        }
+        this.backgroundRefreshPeriod = period;
+        return this;
+    }
+
     public CoffigBuilder enableValidation(Object validatorFactory) {
         this.validatorFactory = validatorFactory;
         return this;
@@ -116,14 +163,19 @@ public class CoffigBuilder {
             }
         }
 
-        return new Coffig(
+        Coffig coffig = new Coffig(
                 wrap(new EvaluatingMapper(
                         new CompositeMapper(mappers.toArray(new ConfigurationMapper[0])),
-                        new CompositeEvaluator(evaluators.toArray(new ConfigurationEvaluator[0]))
+                        new CompositeEvaluator(evaluators.toArray(new ConfigurationEvaluator[0])),
+                        eagerEvaluation
                 )),
-                new CompositeProvider(providers.toArray(new ConfigurationProvider[0])),
+                new CompositeProvider(providerExecutor, providers.toArray(new ConfigurationProvider[0])),
                 new CompositeProcessor(processors.toArray(new ConfigurationProcessor[0]))
         );
+        coffig.setMappingCacheEnabled(mappingCache);
+        coffig.setListenerExecutor(listenerExecutor);
+        coffig.setBackgroundRefreshPeriod(backgroundRefreshPeriod);
+        return coffig;
     }
 
     private ConfigurationMapper wrap(ConfigurationMapper mapper) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig;
+
+import static org.seedstack.shed.reflect.Classes.instantiateDefault;
+
+import java.util.function.Supplier;
+import org.seedstack.coffig.evaluator.EvaluationContext;
+
+/**
+ * A configuration class bound to a configuration, always providing the configuration object mapped from the current
+ * configuration tree. The object is mapped again only after the tree changes, so it can be retrieved on each use
+ * instead of being held. Objects depending on non-deterministic evaluations are mapped again on each retrieval.
+ *
+ * @param <T> the type of the configuration object.
+ * @see Coffig#bind(Class, String...)
+ */
+public final class ConfigBinding<T> implements Supplier<T> {
+    private final Coffig coffig;
+    private final Class<T> configurationClass;
+    private final String[] path;
+    private volatile Bound<T> bound;
+
+    ConfigBinding(Coffig coffig, Class<T> configurationClass, String... path) {
+        this.coffig = coffig;
+        this.configurationClass = configurationClass;
+        this.path = path == null ? null : path.clone();
+    }
+
+    /**
+     * Returns the configuration object mapped from the current configuration tree, or a default instance if the
+     * configuration path doesn't exist, like {@link Coffig#get(Class, String...)}.
+     *
+     * @return the current configuration object.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        Coffig.Snapshot snapshot = coffig.currentSnapshot();
+        Bound<T> current = bound;
+        if (current != null && current.snapshot == snapshot) {
+            return current.value;
+        }
+
+        T value;
+        boolean deterministic;
+        EvaluationContext evaluationContext = EvaluationContext.open();
+        try {
+            value = (T) coffig.getOptional(snapshot, configurationClass, path)
+                    .orElseGet(() -> instantiateDefault(configurationClass));
+        } finally {
+            deterministic = evaluationContext.close();
+        }
+        if (deterministic) {
+            bound = new Bound<>(snapshot, value);
+        }
+        return value;
+    }
+
+    public Class<T> getConfigurationClass() {
+        return configurationClass;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigBinding{" + configurationClass.getName() + "}";
+    }
+
+    private static class Bound<T> {
+        private final Coffig.Snapshot snapshot;
+        private final T value;
+
+        private Bound(Coffig.Snapshot snapshot, T value) {
+            this.snapshot = snapshot;
+            this.value = value;
+        }
+    }
+}
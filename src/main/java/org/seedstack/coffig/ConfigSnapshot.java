@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig;
+
+import static org.seedstack.shed.reflect.Classes.instantiateDefault;
+import static org.seedstack.shed.reflect.Types.rawClassOf;
+
+import java.lang.reflect.Type;
+import java.util.Optional;
+
+/**
+ * An immutable view of a configuration, pinned to the configuration tree current at its creation. Reads done through
+ * a snapshot are consistent with each other and share the mapping cache of the configuration for this tree. A
+ * snapshot is meant to be short-lived, typically for the duration of a request.
+ *
+ * @see Coffig#snapshot()
+ */
+public final class ConfigSnapshot {
+    private final Coffig coffig;
+    private final Coffig.Snapshot snapshot;
+
+    ConfigSnapshot(Coffig coffig, Coffig.Snapshot snapshot) {
+        this.coffig = coffig;
+        this.snapshot = snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Class<T> configurationClass, String... path) {
+        return (T) get((Type) configurationClass, path);
+    }
+
+    public Object get(Type type, String... path) {
+        return getOptional(type, path).orElseGet(() -> instantiateDefault(rawClassOf(type)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getMandatory(Class<T> configurationClass, String... path) {
+        return (T) getMandatory((Type) configurationClass, path);
+    }
+
+    public Object getMandatory(Type configurationClass, String... path) {
+        return getOptional(configurationClass, path).orElseThrow(() -> Coffig.pathNotFound(path));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getOptional(Class<T> configurationClass, String... path) {
+        return (Optional<T>) getOptional((Type) configurationClass, path);
+    }
+
+    public Optional<Object> getOptional(Type configurationType, String... path) {
+        return coffig.getOptional(snapshot, configurationType, path);
+    }
+
+    public TreeNode getTree() {
+        return snapshot.getTree();
+    }
+
+    @Override
+    public String toString() {
+        return "---\n" + snapshot.getTree().toString();
+    }
+}
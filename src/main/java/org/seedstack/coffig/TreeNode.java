@@ -7,7 +7,11 @@
  */
 package org.seedstack.coffig;
 
+import org.seedstack.coffig.node.ArrayNode;
+import org.seedstack.coffig.node.MapNode;
 import org.seedstack.coffig.node.NamedNode;
+import org.seedstack.coffig.node.Path;
+import org.seedstack.coffig.node.ValueNode;
 import org.seedstack.coffig.spi.ConfigurationMapper;
 
 import java.util.Optional;
@@ -31,6 +35,10 @@ public interface TreeNode {
 
     Optional<TreeNode> get(String path);
 
+    default Optional<TreeNode> get(Path path) {
+        return get(path.toString());
+    }
+
     Stream<TreeNode> walk();
 
     boolean isEmpty();
@@ -39,6 +47,18 @@ public interface TreeNode {
 
     TreeNode set(String path, TreeNode value);
 
+    /**
+     * Sets a node at the specified compiled path. Nodes pass compiled paths down to their children, so an implementation
+     * overriding {@link #set(String, TreeNode)} should override this method too.
+     *
+     * @param path  the compiled path.
+     * @param value the node to set.
+     * @return the node returned by {@link #set(String, TreeNode)}.
+     */
+    default TreeNode setAt(Path path, TreeNode value) {
+        return set(path.toString(), value);
+    }
+
     TreeNode remove(String path);
 
     String toMappedString(ConfigurationMapper mapper);
@@ -51,6 +71,33 @@ public interface TreeNode {
         }
     }
 
+    /**
+     * Returns a mutable deep copy of this node, which can be merged or altered without affecting the original.
+     *
+     * @return the copied node.
+     */
+    default TreeNode copy() {
+        TreeNode copy;
+        switch (type()) {
+            case MAP_NODE:
+                copy = new MapNode(namedNodes()
+                        .map(namedNode -> new NamedNode(namedNode.name(),
+                                namedNode.node() == null ? null : namedNode.node().copy()))
+                        .toArray(NamedNode[]::new));
+                break;
+            case ARRAY_NODE:
+                copy = new ArrayNode(nodes().map(TreeNode::copy).toArray(TreeNode[]::new));
+                break;
+            default:
+                copy = new ValueNode(value());
+                break;
+        }
+        if (isHidden()) {
+            copy.hide();
+        }
+        return copy;
+    }
+
     default TreeNode move(String sourcePath, String destinationPath) {
         this.set(destinationPath, this.remove(sourcePath));
         return this;
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.evaluator;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ConfigurationErrorCode;
+import org.seedstack.coffig.internal.ConfigurationException;
+
+/**
+ * Tracks whether the evaluations done by the current thread only depend on the configuration tree. The result of such
+ * evaluations can be reused as long as the tree doesn't change. Evaluators depending on anything else, like
+ * non-deterministic functions, must call {@link #markNonDeterministic()} during evaluation.
+ *
+ * <p>The paths referenced during evaluation are also recorded, so the results can be reused as long as the nodes at
+ * these paths don't change. Configuration reads done with {@link org.seedstack.coffig.Coffig} during an evaluation are
+ * recorded as references, but evaluators or functions reading the configuration by other means must call
+ * {@link #markUntracked()}. Evaluators must also call {@link #markFailed()} when an evaluation fails, so its
+ * result is never reused.</p>
+ *
+ * <p>A context can also pin the configuration tree that evaluations must be done against, like the tree of a
+ * configuration snapshot which may no longer be the current one.</p>
+ *
+ * <p>Contexts can be nested: a non-deterministic, untracked or failed evaluation also makes the enclosing contexts
+ * non-deterministic, untracked or failed, the references of a context are also references of the enclosing contexts and the pinned tree of a context is inherited
+ * by nested contexts which don't pin their own.</p>
+ *
+ * <p>The chain of references followed by the current thread is also tracked, independently of any opened context, to
+ * detect circular references between configuration values.</p>
+ */
+public final class EvaluationContext {
+    private static final ThreadLocal<EvaluationContext> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Deque<String>> REFERENCES = ThreadLocal.withInitial(ArrayDeque::new);
+    private final EvaluationContext parent;
+    private final TreeNode rootNode;
+    private boolean deterministic = true;
+    private boolean tracked = true;
+    private boolean failed;
+    private Set<String> references;
+
+    private EvaluationContext(EvaluationContext parent, TreeNode rootNode) {
+        this.parent = parent;
+        this.rootNode = rootNode != null || parent == null ? rootNode : parent.rootNode;
+    }
+
+    /**
+     * Opens a new evaluation context for the current thread. It must be closed with {@link #close()}.
+     *
+     * @return the opened context.
+     */
+    public static EvaluationContext open() {
+        return open(null);
+    }
+
+    /**
+     * Opens a new evaluation context for the current thread, pinning the configuration tree that evaluations must be
+     * done against. It must be closed with {@link #close()}.
+     *
+     * @param rootNode the root node of the configuration tree or null to inherit it from the enclosing context.
+     * @return the opened context.
+     */
+    public static EvaluationContext open(TreeNode rootNode) {
+        EvaluationContext evaluationContext = new EvaluationContext(CURRENT.get(), rootNode);
+        CURRENT.set(evaluationContext);
+        return evaluationContext;
+    }
+
+    /**
+     * Returns whether an evaluation context is opened for the current thread.
+     *
+     * @return true if evaluations done by the current thread are tracked by a context, false otherwise.
+     */
+    public static boolean isOpen() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Returns the configuration tree pinned by the current evaluation context.
+     *
+     * @return the root node of the pinned tree or null if there is none.
+     */
+    public static TreeNode pinnedRootNode() {
+        EvaluationContext evaluationContext = CURRENT.get();
+        return evaluationContext == null ? null : evaluationContext.rootNode;
+    }
+
+    /**
+     * Marks the current evaluation context, if any, as non-deterministic.
+     */
+    public static void markNonDeterministic() {
+        EvaluationContext evaluationContext = CURRENT.get();
+        if (evaluationContext != null) {
+            evaluationContext.deterministic = false;
+        }
+    }
+
+    /**
+     * Marks the current evaluation context, if any, as depending on nodes that may not have been recorded as
+     * references. Its results can still be reused while the configuration tree doesn't change.
+     */
+    public static void markUntracked() {
+        EvaluationContext evaluationContext = CURRENT.get();
+        if (evaluationContext != null) {
+            evaluationContext.tracked = false;
+        }
+    }
+
+    /**
+     * Marks the current evaluation context, if any, as failed.
+     */
+    public static void markFailed() {
+        EvaluationContext evaluationContext = CURRENT.get();
+        if (evaluationContext != null) {
+            evaluationContext.failed = true;
+        }
+    }
+
+    /**
+     * Records that the evaluation done in the current evaluation context, if any, depends on the node at the
+     * specified path. References must be recorded even if no node exists at the path.
+     *
+     * @param path the referenced path.
+     */
+    public static void recordReference(String path) {
+        EvaluationContext evaluationContext = CURRENT.get();
+        if (evaluationContext != null) {
+            evaluationContext.addReferences(Collections.singleton(path));
+        }
+    }
+
+    /**
+     * Records that the evaluation done in the current evaluation context, if any, depends on the nodes at the
+     * specified paths. This is used when reusing the result of a previous evaluation.
+     *
+     * @param paths the referenced paths.
+     */
+    public static void recordReferences(Collection<String> paths) {
+        if (!paths.isEmpty()) {
+            EvaluationContext evaluationContext = CURRENT.get();
+            if (evaluationContext != null) {
+                evaluationContext.addReferences(paths);
+            }
+        }
+    }
+
+    /**
+     * Returns the paths referenced by the evaluations done in this context.
+     *
+     * @return the set of referenced paths.
+     */
+    public Set<String> getReferences() {
+        return references == null ? Collections.emptySet() : Collections.unmodifiableSet(references);
+    }
+
+    /**
+     * Returns whether every node the evaluations done in this context depend on has been recorded as a reference.
+     *
+     * @return true if the references are complete, false otherwise.
+     */
+    public boolean isTracked() {
+        return tracked;
+    }
+
+    /**
+     * Closes this context and restores the enclosing one.
+     *
+     * @return true if every evaluation done in this context was deterministic and none failed, false otherwise.
+     */
+    public boolean close() {
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            if (!deterministic) {
+                parent.deterministic = false;
+            }
+            if (!tracked) {
+                parent.tracked = false;
+            }
+            if (failed) {
+                parent.failed = true;
+            }
+            if (references != null) {
+                parent.addReferences(references);
+            }
+            CURRENT.set(parent);
+        }
+        return deterministic && !failed;
+    }
+
+    private void addReferences(Collection<String> paths) {
+        if (references == null) {
+            references = new HashSet<>();
+        }
+        references.addAll(paths);
+    }
+
+    /**
+     * Records that the current thread follows a reference to the specified path. It must be matched by a call to
+     * {@link #exitReference()} once the referenced value is evaluated.
+     *
+     * @param path the referenced path.
+     * @throws ConfigurationException if the path is already being evaluated by the current thread.
+     */
+    public static void enterReference(String path) {
+        Deque<String> references = REFERENCES.get();
+        if (references.contains(path)) {
+            StringBuilder chain = new StringBuilder();
+            for (Iterator<String> it = references.descendingIterator(); it.hasNext(); ) {
+                chain.append(it.next()).append(" -> ");
+            }
+            throw ConfigurationException.createNew(ConfigurationErrorCode.CIRCULAR_REFERENCE)
+                    .put("path", path)
+                    .put("chain", chain.append(path).toString());
+        }
+        references.push(path);
+    }
+
+    /**
+     * Records that the current thread is done with the last reference it entered.
+     */
+    public static void exitReference() {
+        REFERENCES.get().pop();
+    }
+}
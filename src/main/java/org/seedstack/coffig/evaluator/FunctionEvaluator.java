@@ -7,7 +7,6 @@
  */
 package org.seedstack.coffig.evaluator;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.seedstack.coffig.Coffig;
 import org.seedstack.coffig.TreeNode;
 import org.seedstack.coffig.node.ValueNode;
@@ -16,23 +15,22 @@ import org.seedstack.coffig.spi.ConfigFunctionHolder;
 import org.seedstack.coffig.spi.ConfigurationComponent;
 import org.seedstack.coffig.spi.ConfigurationEvaluator;
 import org.seedstack.shed.ClassLoaders;
-import org.seedstack.shed.exception.Throwing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
 import static org.seedstack.shed.reflect.ReflectUtils.makeAccessible;
@@ -41,12 +39,23 @@ public class FunctionEvaluator implements ConfigurationEvaluator {
     private static final ClassLoader MOST_COMPLETE_CLASS_LOADER = ClassLoaders.findMostCompleteClassLoader
             (FunctionEvaluator.class);
     private static final Logger LOGGER = LoggerFactory.getLogger(FunctionEvaluator.class);
-    private static final Pattern CALL_SITE_PATTERN = Pattern.compile("\\\\?\\$([_a-zA-Z]\\w*)\\(|\\)");
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodHandle REFLECTIVE_INVOKE;
     private final AtomicBoolean scanned = new AtomicBoolean();
     private final List<ConfigFunctionHolder> configFunctionHolders = new ArrayList<>();
     private final ConcurrentMap<String, FunctionRegistration> functions = new ConcurrentHashMap<>();
     private Coffig coffig;
 
+    static {
+        try {
+            REFLECTIVE_INVOKE = LOOKUP.findVirtual(Method.class, "invoke",
+                    MethodType.methodType(Object.class, Object.class, Object[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     @Override
     public void initialize(Coffig coffig) {
         this.coffig = coffig;
@@ -72,6 +81,11 @@ public class FunctionEvaluator implements ConfigurationEvaluator {
         return configFunctionHolders.stream().anyMatch(ConfigurationComponent::isDirty);
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return configFunctionHolders.stream().allMatch(ConfigurationComponent::isDirtyTracked);
+    }
+
     @Override
     public FunctionEvaluator fork() {
         FunctionEvaluator fork = new FunctionEvaluator();
@@ -86,9 +100,10 @@ public class FunctionEvaluator implements ConfigurationEvaluator {
     public TreeNode evaluate(TreeNode rootNode, TreeNode valueNode) {
         if (valueNode.type() == TreeNode.Type.VALUE_NODE && !valueNode.isEmpty()) {
             try {
-                return processValue(rootNode, valueNode.value());
+                return FunctionExpression.evaluate(rootNode, valueNode.value(), this::invokeFunction);
             } catch (Exception e) {
                 LOGGER.debug("Error when evaluating configuration function: {}", valueNode.value(), e);
+                EvaluationContext.markFailed();
                 return new ValueNode(TreeNode.formatNodeError(e));
             }
         } else {
@@ -109,173 +124,93 @@ public class FunctionEvaluator implements ConfigurationEvaluator {
     public void registerFunction(String name, Method method, Object instance) {
         if (functions.putIfAbsent(name, new FunctionRegistration(method, instance)) != null) {
             throw new IllegalStateException("Function " + name + " already registered");
-        } else {
-            makeAccessible(method);
         }
     }
 
-    private TreeNode processValue(TreeNode rootNode, String value) throws Exception {
-        int currentPos = 0;
-        List<TreeNode> results = new ArrayList<>();
-        CallSiteInfo callSiteInfo;
-
-        // Iterate through all call sites in the value
-        while ((callSiteInfo = findFunctionCall(value, currentPos)) != null) {
-            addIfNotBlankValue(results, new ValueNode(value.substring(currentPos, callSiteInfo.startPos)));
-
-            if (callSiteInfo.escaped) {
-                addIfNotBlankValue(results, new ValueNode(value.substring(callSiteInfo.startPos + 1, callSiteInfo.endPos)));
-            } else {
-                addIfNotBlankValue(results, invokeFunction(
-                        callSiteInfo.name,
-                        Arrays.stream(callSiteInfo.arguments)
-                                .map((Throwing.Function<String, TreeNode, Exception>) arg ->
-                                        processArgument(rootNode, arg))
-                                .toArray(TreeNode[]::new)
-                ));
-            }
-
-            currentPos = callSiteInfo.endPos;
+    private TreeNode invokeFunction(String functionName, TreeNode[] arguments) throws Exception {
+        FunctionRegistration functionRegistration = functions.get(functionName);
+        if (functionRegistration == null) {
+            throw new IllegalArgumentException("Unknown function " + functionName);
         }
 
-        // Append the remainder
-        addIfNotBlankValue(results, new ValueNode(value.substring(currentPos)));
-
-        if (results.size() == 1) {
-            // If only one tree node return it untouched
-            return results.get(0);
-        } else {
-            // Otherwise serialize everything as string (may trigger an exception if arrays and maps are in the list)
-            return new ValueNode(results.stream().map(TreeNode::safeValue).collect(Collectors.joining("")));
+        if (arguments.length != functionRegistration.mappedTypes.length) {
+            throw new IllegalArgumentException("Function " + functionName + " expects "
+                    + functionRegistration.mappedTypes.length + " argument(s) but " + arguments.length + " were given");
         }
-    }
 
-    private void addIfNotBlankValue(List<TreeNode> list, TreeNode node) {
-        if (node.type() == TreeNode.Type.VALUE_NODE) {
-            String value = node.value();
-            if (value != null && !value.isEmpty()) {
-                list.add(node);
+        // Map arguments according to the function parameter types
+        Object[] mappedArguments = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Type mappedType = functionRegistration.mappedTypes[i];
+            if (mappedType == null) {
+                mappedArguments[i] = arguments[i];
+            } else {
+                mappedArguments[i] = coffig.getMapper().map(arguments[i], mappedType);
             }
-        } else {
-            list.add(node);
         }
-    }
 
-    private TreeNode processArgument(TreeNode tree, String value) throws Exception {
-        if (value.startsWith("'") && value.endsWith("'")) {
-            return new ValueNode(value.substring(1, value.length() - 1));
+        // Invoke the function
+        if (!functionRegistration.deterministic) {
+            EvaluationContext.markNonDeterministic();
         }
-
-        CallSiteInfo callSiteInfo = findFunctionCall(value, 0);
-        if (callSiteInfo == null) {
-            TreeNode refNode = tree.get(value).orElse(new ValueNode(""));
-            if (refNode.type() == TreeNode.Type.VALUE_NODE) {
-                // References value nodes can be processed...
-                return processValue(tree, refNode.value());
+        Object result = functionRegistration.invoke(mappedArguments);
+        if (result != null) {
+            if (result instanceof TreeNode) {
+                return (TreeNode) result;
             } else {
-                // ... whereas other node types are passed directly
-                return refNode;
+                return new ValueNode(result.toString());
             }
         } else {
-            return processValue(tree, value);
+            return new ValueNode("");
         }
     }
 
-    @SuppressFBWarnings("REC_CATCH_EXCEPTION")
-    private TreeNode invokeFunction(String functionName, TreeNode[] arguments) throws Exception {
-        FunctionRegistration functionRegistration = functions.get(functionName);
-        if (functionRegistration == null) {
-            throw new IllegalArgumentException("Unknown function " + functionName);
-        }
+    private static class FunctionRegistration {
+        private final Type[] mappedTypes;
+        private final MethodHandle invoker;
+        private final boolean deterministic;
 
-        try {
-            // Map arguments according to the function parameter types
-            Object[] mappedArguments = new Object[arguments.length];
-            for (int i = 0; i < arguments.length; i++) {
-                if (TreeNode.class.equals(functionRegistration.argTypes[i])) {
-                    mappedArguments[i] = arguments[i];
-                } else {
-                    mappedArguments[i] = coffig.getMapper().map(arguments[i], functionRegistration.argTypes[i]);
-                }
+        private FunctionRegistration(Method method, Object instance) {
+            Type[] argTypes = method.getGenericParameterTypes();
+            this.mappedTypes = new Type[argTypes.length];
+            for (int i = 0; i < argTypes.length; i++) {
+                // Tree node arguments are passed as is, others are mapped to the parameter type
+                this.mappedTypes[i] = TreeNode.class.equals(argTypes[i]) ? null : argTypes[i];
             }
+            this.invoker = createInvoker(makeAccessible(method), instance);
+            ConfigFunction annotation = method.getAnnotation(ConfigFunction.class);
+            this.deterministic = annotation == null || annotation.deterministic();
+        }
 
-            // Invoke the function
-            Object result = functionRegistration.method.invoke(functionRegistration.instance, mappedArguments);
-            if (result != null) {
-                if (result instanceof TreeNode) {
-                    return (TreeNode) result;
-                } else {
-                    return new ValueNode(result.toString());
-                }
-            } else {
-                return new ValueNode("");
-            }
-        } catch (Exception e) {
-            if (e instanceof InvocationTargetException) {
-                Throwable targetException = ((InvocationTargetException) e).getTargetException();
+        private Object invoke(Object[] arguments) throws Exception {
+            try {
+                return (Object) invoker.invokeExact(arguments);
+            } catch (InvocationTargetException e) {
+                Throwable targetException = e.getTargetException();
                 if (targetException instanceof Exception) {
                     throw ((Exception) targetException);
                 }
+                throw e;
+            } catch (Exception e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
             }
-            throw e;
         }
-    }
 
-    private CallSiteInfo findFunctionCall(String value, int startIndex) {
-        int level = 0;
-        int argumentPos = 0;
-        Matcher matcher = CALL_SITE_PATTERN.matcher(value);
-        CallSiteInfo callSiteInfo = new CallSiteInfo();
-        while (matcher.find()) {
-            if (matcher.start() < startIndex) {
-                continue;
-            }
-
-            if (matcher.group(1) != null) {
-                if (matcher.group().startsWith("\\")) {
-                    callSiteInfo.escaped = true;
-                }
-                if (level == 0) {
-                    callSiteInfo.name = matcher.group(1).trim();
-                    callSiteInfo.startPos = matcher.start();
-                    argumentPos = matcher.end(1) + 1;
-                }
-                level++;
-            } else {
-                level--;
-                if (level == 0) {
-                    String allArgs = value.substring(argumentPos, matcher.start()).trim();
-                    if (allArgs.isEmpty()) {
-                        callSiteInfo.arguments = new String[0];
-                    } else {
-                        callSiteInfo.arguments = Arrays.stream(allArgs.split(",")).map(String::trim)
-                                .toArray(String[]::new);
-                    }
-                    callSiteInfo.endPos = matcher.end();
-                    return callSiteInfo;
+        private static MethodHandle createInvoker(Method method, Object instance) {
+            MethodHandle handle;
+            try {
+                handle = LOOKUP.unreflect(method);
+                if (!Modifier.isStatic(method.getModifiers())) {
+                    handle = MethodHandles.insertArguments(handle, 0, instance);
                 }
+            } catch (IllegalAccessException e) {
+                // Methods that cannot be unreflected are invoked through reflection
+                handle = MethodHandles.insertArguments(REFLECTIVE_INVOKE, 0, method, instance);
+                return handle.asType(INVOKER_TYPE);
             }
-        }
-        return null;
-    }
-
-    private static class CallSiteInfo {
-        private int startPos;
-        private int endPos;
-        private boolean escaped;
-        private String name;
-        private String[] arguments;
-    }
-
-    private static class FunctionRegistration {
-        private final Method method;
-        private final Object instance;
-        private final Type[] argTypes;
-
-        private FunctionRegistration(Method method, Object instance) {
-            this.method = method;
-            this.instance = instance;
-            this.argTypes = method.getGenericParameterTypes();
+            return handle.asSpreader(Object[].class, handle.type().parameterCount()).asType(INVOKER_TYPE);
         }
     }
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ClockCache;
+import org.seedstack.coffig.node.ValueNode;
+
+/**
+ * The compiled form of a string value containing function calls. A value is parsed once into a sequence of literal
+ * parts and call sites, each call site holding its compiled arguments (quoted literals, references or nested calls).
+ * Compiled expressions only depend on the value, so they are cached and shared by all evaluators. Values without any
+ * call, which are the vast majority, are neither compiled nor cached so they don't evict the compiled expressions.
+ */
+final class FunctionExpression {
+    private static final int MAX_CACHED_EXPRESSIONS = 16384;
+    private static final ClockCache<String, FunctionExpression> CACHE = new ClockCache<>(MAX_CACHED_EXPRESSIONS);
+    private final Part[] parts;
+
+    private FunctionExpression(Part[] parts) {
+        this.parts = parts;
+    }
+
+    static FunctionExpression compile(String value) {
+        return CACHE.computeIfAbsent(value, key -> new FunctionExpression(parse(key)));
+    }
+
+    static TreeNode evaluate(TreeNode rootNode, String value, Invoker invoker) throws Exception {
+        if (value.indexOf('$') == -1) {
+            return new ValueNode(value);
+        }
+        return compile(value).evaluate(rootNode, invoker);
+    }
+
+    TreeNode evaluate(TreeNode rootNode, Invoker invoker) throws Exception {
+        List<TreeNode> results = new ArrayList<>(parts.length);
+        for (Part part : parts) {
+            TreeNode result = part.evaluate(rootNode, invoker);
+            if (!isBlankValue(result)) {
+                results.add(result);
+            }
+        }
+        if (results.size() == 1) {
+            // If only one tree node return it untouched
+            return results.get(0);
+        } else {
+            // Otherwise serialize everything as string (may trigger an exception if arrays and maps are in the list)
+            return new ValueNode(results.stream().map(TreeNode::safeValue).collect(Collectors.joining("")));
+        }
+    }
+
+    private static Part[] parse(String value) {
+        List<Part> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int currentPos = 0;
+        CallSite callSite;
+
+        // Iterate through all call sites in the value
+        while ((callSite = findCallSite(value, currentPos)) != null) {
+            literal.append(value, currentPos, callSite.startPos);
+            if (callSite.escaped) {
+                literal.append(value, callSite.startPos + 1, callSite.endPos);
+            } else {
+                addLiteral(parts, literal);
+                parts.add(new Call(callSite.name, Arrays.stream(callSite.arguments)
+                        .map(FunctionExpression::parseArgument)
+                        .toArray(Argument[]::new)));
+            }
+            currentPos = callSite.endPos;
+        }
+
+        // Append the remainder
+        literal.append(value, currentPos, value.length());
+        addLiteral(parts, literal);
+
+        return parts.toArray(new Part[0]);
+    }
+
+    private static void addLiteral(List<Part> parts, StringBuilder literal) {
+        if (literal.length() > 0) {
+            parts.add(new Literal(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    private static Argument parseArgument(String argument) {
+        if (argument.startsWith("'") && argument.endsWith("'")) {
+            return new QuotedArgument(argument);
+        } else if (findCallSite(argument, 0) == null) {
+            return new ReferenceArgument(argument);
+        } else {
+            return new ExpressionArgument(compile(argument));
+        }
+    }
+
+    private static boolean isBlankValue(TreeNode treeNode) {
+        if (treeNode.type() == TreeNode.Type.VALUE_NODE) {
+            String value = treeNode.value();
+            return value == null || value.isEmpty();
+        }
+        return false;
+    }
+
+    /**
+     * Finds the next top-level call site starting at the specified position, or returns null if there is none. A call
+     * site is escaped if any escaped call appears in its span.
+     */
+    private static CallSite findCallSite(String value, int startIndex) {
+        int level = 0;
+        int argumentPos = 0;
+        CallSite callSite = new CallSite();
+        int length = value.length();
+        for (int i = startIndex; i < length; i++) {
+            char c = value.charAt(i);
+            int nameStart;
+            if (c == '\\' && i + 1 < length && value.charAt(i + 1) == '$') {
+                nameStart = i + 2;
+            } else if (c == '$') {
+                nameStart = i + 1;
+            } else {
+                if (c == ')') {
+                    level--;
+                    if (level == 0) {
+                        String allArgs = value.substring(argumentPos, i).trim();
+                        if (allArgs.isEmpty()) {
+                            callSite.arguments = new String[0];
+                        } else {
+                            callSite.arguments = Arrays.stream(allArgs.split(",")).map(String::trim)
+                                    .toArray(String[]::new);
+                        }
+                        callSite.endPos = i + 1;
+                        return callSite;
+                    }
+                }
+                continue;
+            }
+
+            int nameEnd = findNameEnd(value, nameStart);
+            if (nameEnd == -1) {
+                continue;
+            }
+            if (c == '\\') {
+                callSite.escaped = true;
+            }
+            if (level == 0) {
+                callSite.name = value.substring(nameStart, nameEnd);
+                callSite.startPos = i;
+                argumentPos = nameEnd + 1;
+            }
+            level++;
+            i = nameEnd;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the position of the parenthesis following a function name starting at the specified position, or -1 if
+     * there is no valid function name followed by a parenthesis.
+     */
+    private static int findNameEnd(String value, int nameStart) {
+        int length = value.length();
+        if (nameStart >= length || !isNameStart(value.charAt(nameStart))) {
+            return -1;
+        }
+        int i = nameStart + 1;
+        while (i < length && isNamePart(value.charAt(i))) {
+            i++;
+        }
+        return i < length && value.charAt(i) == '(' ? i : -1;
+    }
+
+    private static boolean isNameStart(char c) {
+        return c == '_' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isNamePart(char c) {
+        return isNameStart(c) || c >= '0' && c <= '9';
+    }
+
+    /**
+     * Invokes a function by name with already evaluated arguments.
+     */
+    interface Invoker {
+        TreeNode invoke(String functionName, TreeNode[] arguments) throws Exception;
+    }
+
+    private interface Part {
+        TreeNode evaluate(TreeNode rootNode, Invoker invoker) throws Exception;
+    }
+
+    private static class Literal implements Part {
+        private final String text;
+
+        private Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public TreeNode evaluate(TreeNode rootNode, Invoker invoker) {
+            return new ValueNode(text);
+        }
+    }
+
+    private static class Call implements Part {
+        private final String name;
+        private final Argument[] arguments;
+
+        private Call(String name, Argument[] arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public TreeNode evaluate(TreeNode rootNode, Invoker invoker) throws Exception {
+            TreeNode[] evaluatedArguments = new TreeNode[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                evaluatedArguments[i] = arguments[i].evaluate(rootNode, invoker);
+            }
+            return invoker.invoke(name, evaluatedArguments);
+        }
+    }
+
+    private interface Argument {
+        TreeNode evaluate(TreeNode rootNode, Invoker invoker) throws Exception;
+    }
+
+    private static class QuotedArgument implements Argument {
+        private final String quoted;
+
+        private QuotedArgument(String quoted) {
+            this.quoted = quoted;
+        }
+
+        @Override
+        public TreeNode evaluate(TreeNode rootNode, Invoker invoker) {
+            // A lone quote is invalid and fails here like any other evaluation error
+            return new ValueNode(quoted.substring(1, quoted.length() - 1));
+        }
+    }
+
+    private static class ReferenceArgument implements Argument {
+        private final String path;
+
+        private ReferenceArgument(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public TreeNode evaluate(TreeNode rootNode, Invoker invoker) throws Exception {
+            EvaluationContext.recordReference(path);
+            TreeNode refNode = rootNode.get(path).orElse(null);
+            if (refNode == null) {
+                return new ValueNode("");
+            } else if (refNode.type() == TreeNode.Type.VALUE_NODE) {
+                // References value nodes can be processed...
+                String value = refNode.value();
+                if (value == null) {
+                    throw new NullPointerException("Referenced value is null");
+                }
+                EvaluationContext.enterReference(path);
+                try {
+                    return FunctionExpression.evaluate(rootNode, value, invoker);
+                } finally {
+                    EvaluationContext.exitReference();
+                }
+            } else {
+                // ... whereas other node types are passed directly
+                return refNode;
+            }
+        }
+    }
+
+    private static class ExpressionArgument implements Argument {
+        private final FunctionExpression expression;
+
+        private ExpressionArgument(FunctionExpression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public TreeNode evaluate(TreeNode rootNode, Invoker invoker) throws Exception {
+            return expression.evaluate(rootNode, invoker);
+        }
+    }
+
+    private static class CallSite {
+        private int startPos;
+        private int endPos;
+        private boolean escaped;
+        private String name;
+        private String[] arguments;
+    }
+}
@@ -7,22 +7,16 @@
  */
 package org.seedstack.coffig.evaluator;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.seedstack.coffig.TreeNode;
 import org.seedstack.coffig.node.ValueNode;
 import org.seedstack.coffig.spi.ConfigurationEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class MacroEvaluator implements ConfigurationEvaluator {
     public static final String VALUE_QUOTE = "'";
     public static final String VALUE_SEPARATOR = ":";
     private static final Logger LOGGER = LoggerFactory.getLogger(MacroEvaluator.class);
-    private static final Pattern MACRO_PATTERN = Pattern.compile("\\\\?\\$\\{|}");
 
     @Override
     public MacroEvaluator fork() {
@@ -33,113 +27,14 @@ public class MacroEvaluator implements ConfigurationEvaluator {
     public TreeNode evaluate(TreeNode rootNode, TreeNode valueNode) {
         if (valueNode.type() == TreeNode.Type.VALUE_NODE && !valueNode.isEmpty()) {
             try {
-                return new ValueNode(processValue(rootNode, valueNode.value()));
+                return new ValueNode(MacroExpression.evaluate(rootNode, valueNode.value()));
             } catch (Exception e) {
                 LOGGER.debug("Error when evaluating configuration macro: {}", valueNode.value(), e);
+                EvaluationContext.markFailed();
                 return new ValueNode(TreeNode.formatNodeError(e));
             }
         } else {
             return valueNode;
         }
     }
-
-    private String processValue(TreeNode rootNode, String value) {
-        if (value == null) {
-            return null;
-        }
-
-        StringBuilder result = new StringBuilder();
-        int currentPos = 0;
-        MatchingResult matchingResult;
-
-        // Process all macros
-        while ((matchingResult = findMatchingCurlyBraces(value, currentPos)) != null) {
-            // Add the beginning of the string (before the macro)
-            result.append(value, currentPos, matchingResult.startPos);
-
-            if (matchingResult.escaped) {
-                // Add the macro as-is (without resolving it)
-                result.append(value, matchingResult.startPos + 1, matchingResult.endPos + 1);
-            } else {
-                // Process the macro
-                boolean insideQuotes = false;
-                for (String part : value.substring(matchingResult.startPos + 2, matchingResult.endPos)
-                        .split(VALUE_SEPARATOR)) {
-                    if (part.startsWith(VALUE_QUOTE) && part.endsWith(VALUE_QUOTE)) {
-                        result.append(part, 1, part.length() - 1);
-                        break;
-                    } else if (!insideQuotes && part.startsWith(VALUE_QUOTE)) {
-                        result.append(part.substring(1));
-                        insideQuotes = true;
-                    } else if (insideQuotes && part.endsWith(VALUE_QUOTE)) {
-                        result.append(VALUE_SEPARATOR).append(part, 0, part.length() - 1);
-                        insideQuotes = false;
-                    } else if (insideQuotes) {
-                        result.append(VALUE_SEPARATOR).append(part);
-                    } else {
-                        Optional<TreeNode> node = rootNode.get(processValue(rootNode, part));
-                        if (node.isPresent()) {
-                            result.append(processValue(rootNode, node.get().value()));
-                            break;
-                        }
-                    }
-                }
-            }
-
-            // Advance currentPos to after the macro
-            currentPos = matchingResult.endPos + 1;
-        }
-
-        // Add the remaining of the string (after all macros)
-        result.append(value.substring(currentPos));
-
-        return result.toString();
-    }
-
-    @SuppressFBWarnings("SF_SWITCH_FALLTHROUGH")
-    private MatchingResult findMatchingCurlyBraces(String value, int startIndex) {
-        int level = 0;
-        int startPos = -1;
-        boolean escaped = false;
-        Matcher matcher = MACRO_PATTERN.matcher(value);
-        while (matcher.find()) {
-            if (matcher.start() < startIndex) {
-                continue;
-            }
-            switch (matcher.group()) {
-                case "\\${":
-                    if (level == 0) {
-                        escaped = true;
-                    }
-                    // falls through
-                case "${":
-                    if (level == 0) {
-                        startPos = matcher.start();
-                    }
-                    level++;
-                    break;
-                case "}":
-                    level--;
-                    if (level == 0) {
-                        return new MatchingResult(startPos, matcher.start(), escaped);
-                    }
-                    break;
-                default:
-                    throw new IllegalStateException("Unexpected string in macro " + matcher.group());
-            }
-        }
-        return null;
-    }
-
-    private static class MatchingResult {
-        final int startPos;
-        final int endPos;
-        final boolean escaped;
-
-        MatchingResult(int startPos, int endPos, boolean escaped) {
-            this.startPos = startPos;
-            this.endPos = endPos;
-            this.escaped = escaped;
-        }
-    }
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.evaluator;
+
+import static org.seedstack.coffig.evaluator.MacroEvaluator.VALUE_QUOTE;
+import static org.seedstack.coffig.evaluator.MacroEvaluator.VALUE_SEPARATOR;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ClockCache;
+
+/**
+ * The compiled form of a string value containing macros. A value is parsed once into a sequence of literal parts and
+ * macros, each macro being a chain of references and quoted defaults. Compiled expressions are cached so evaluating
+ * the same value again only consists in resolving its references.
+ */
+final class MacroExpression {
+    private static final int MAX_CACHED_EXPRESSIONS = 16384;
+    private static final ClockCache<String, MacroExpression> CACHE = new ClockCache<>(MAX_CACHED_EXPRESSIONS);
+    private final String value;
+    private final Part[] parts;
+
+    private MacroExpression(String value, Part[] parts) {
+        this.value = value;
+        this.parts = parts;
+    }
+
+    static MacroExpression compile(String value) {
+        return CACHE.computeIfAbsent(value, key -> new MacroExpression(key, parse(key)));
+    }
+
+    static String evaluate(TreeNode rootNode, String value) {
+        if (value == null) {
+            return null;
+        }
+        return compile(value).evaluate(rootNode);
+    }
+
+    String evaluate(TreeNode rootNode) {
+        if (parts.length == 0) {
+            return value;
+        } else if (parts.length == 1 && parts[0] instanceof Literal) {
+            return ((Literal) parts[0]).text;
+        }
+        StringBuilder result = new StringBuilder();
+        for (Part part : parts) {
+            part.appendTo(rootNode, result);
+        }
+        return result.toString();
+    }
+
+    private static Part[] parse(String value) {
+        List<Part> parts = new ArrayList<>();
+        int currentPos = 0;
+        int[] bounds;
+        while ((bounds = findMacro(value, currentPos)) != null) {
+            int startPos = bounds[0];
+            int endPos = bounds[1];
+            addLiteral(parts, value.substring(currentPos, startPos));
+            if (bounds[2] == 1) {
+                // Escaped macros are kept as-is (without the escaping character)
+                addLiteral(parts, value.substring(startPos + 1, endPos + 1));
+            } else {
+                parts.add(parseMacro(value.substring(startPos + 2, endPos)));
+            }
+            currentPos = endPos + 1;
+        }
+        addLiteral(parts, value.substring(currentPos));
+        return parts.toArray(new Part[0]);
+    }
+
+    private static void addLiteral(List<Part> parts, String text) {
+        if (!text.isEmpty()) {
+            if (!parts.isEmpty() && parts.get(parts.size() - 1) instanceof Literal) {
+                Literal previous = (Literal) parts.remove(parts.size() - 1);
+                parts.add(new Literal(previous.text + text));
+            } else {
+                parts.add(new Literal(text));
+            }
+        }
+    }
+
+    /**
+     * Finds the next top-level macro starting at the specified position. Returns its start position, the position of
+     * its closing brace and 1 if the macro is escaped (0 otherwise), or null if there is no complete macro.
+     */
+    private static int[] findMacro(String value, int startIndex) {
+        int level = 0;
+        int startPos = -1;
+        boolean escaped = false;
+        int length = value.length();
+        for (int i = startIndex; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && value.startsWith("${", i + 1)) {
+                if (level == 0) {
+                    escaped = true;
+                    startPos = i;
+                }
+                level++;
+                i += 2;
+            } else if (c == '$' && i + 1 < length && value.charAt(i + 1) == '{') {
+                if (level == 0) {
+                    startPos = i;
+                }
+                level++;
+                i++;
+            } else if (c == '}') {
+                level--;
+                if (level == 0) {
+                    return new int[]{startPos, i, escaped ? 1 : 0};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the content of a macro into a fallback chain. Quotes are tracked across the separated segments so
+     * quoted defaults can contain separators.
+     */
+    private static Macro parseMacro(String content) {
+        List<Step> steps = new ArrayList<>();
+        boolean insideQuotes = false;
+        for (String segment : content.split(VALUE_SEPARATOR)) {
+            if (segment.startsWith(VALUE_QUOTE) && segment.endsWith(VALUE_QUOTE)) {
+                steps.add(new QuotedDefault(segment));
+                break;
+            } else if (!insideQuotes && segment.startsWith(VALUE_QUOTE)) {
+                steps.add(new Text(segment.substring(1)));
+                insideQuotes = true;
+            } else if (insideQuotes && segment.endsWith(VALUE_QUOTE)) {
+                steps.add(new Text(VALUE_SEPARATOR + segment.substring(0, segment.length() - 1)));
+                insideQuotes = false;
+            } else if (insideQuotes) {
+                steps.add(new Text(VALUE_SEPARATOR + segment));
+            } else {
+                steps.add(new Reference(compile(segment)));
+            }
+        }
+        return new Macro(steps.toArray(new Step[0]));
+    }
+
+    private interface Part {
+        void appendTo(TreeNode rootNode, StringBuilder result);
+    }
+
+    private static class Literal implements Part {
+        private final String text;
+
+        private Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void appendTo(TreeNode rootNode, StringBuilder result) {
+            result.append(text);
+        }
+    }
+
+    private static class Macro implements Part {
+        private final Step[] steps;
+
+        private Macro(Step[] steps) {
+            this.steps = steps;
+        }
+
+        @Override
+        public void appendTo(TreeNode rootNode, StringBuilder result) {
+            for (Step step : steps) {
+                if (step.appendTo(rootNode, result)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private interface Step {
+        /**
+         * Appends the result of this step and returns true if the macro is resolved, false otherwise.
+         */
+        boolean appendTo(TreeNode rootNode, StringBuilder result);
+    }
+
+    private static class Text implements Step {
+        private final String text;
+
+        private Text(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean appendTo(TreeNode rootNode, StringBuilder result) {
+            result.append(text);
+            return false;
+        }
+    }
+
+    private static class QuotedDefault implements Step {
+        private final String quoted;
+
+        private QuotedDefault(String quoted) {
+            this.quoted = quoted;
+        }
+
+        @Override
+        public boolean appendTo(TreeNode rootNode, StringBuilder result) {
+            // A lone quote is invalid and fails here like any other evaluation error
+            result.append(quoted, 1, quoted.length() - 1);
+            return true;
+        }
+    }
+
+    private static class Reference implements Step {
+        private final MacroExpression path;
+
+        private Reference(MacroExpression path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean appendTo(TreeNode rootNode, StringBuilder result) {
+            String referencedPath = path.evaluate(rootNode);
+            EvaluationContext.recordReference(referencedPath);
+            Optional<TreeNode> node = rootNode.get(referencedPath);
+            if (node.isPresent()) {
+                EvaluationContext.enterReference(referencedPath);
+                try {
+                    result.append(MacroExpression.evaluate(rootNode, node.get().value()));
+                } finally {
+                    EvaluationContext.exitReference();
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A bounded cache evicting its entries with the CLOCK (second chance) policy. Reads are lock-free and only mark the
+ * entry as referenced. When the cache is full, an insertion sweeps the entries in insertion order, clearing the mark of
+ * referenced entries and evicting the first unreferenced one. Entries start unreferenced so keys used only once (like
+ * the keys of a parsed source) are evicted before the ones that are read again.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ */
+public final class ClockCache<K, V> {
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final Entry<K, V>[] clock;
+    private int size;
+    private int hand;
+
+    /**
+     * Creates a cache holding at most the specified number of entries.
+     *
+     * @param capacity the maximum number of entries.
+     */
+    @SuppressWarnings("unchecked")
+    public ClockCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.clock = (Entry<K, V>[]) new Entry[capacity];
+    }
+
+    /**
+     * Returns the value associated to the specified key.
+     *
+     * @param key the key.
+     * @return the value or null if the key is not in the cache.
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.referenced) {
+            // Only written when needed to avoid contention on hot entries
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Returns the value associated to the specified key, computing it and adding it to the cache if absent. The value is
+     * computed outside of any lock, so it can be computed more than once under contention but only one value is kept.
+     *
+     * @param key             the key.
+     * @param mappingFunction the function computing the value of an absent key.
+     * @return the cached value.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = putIfAbsent(key, mappingFunction.apply(key));
+        }
+        return value;
+    }
+
+    /**
+     * Adds the specified value to the cache if the key is absent, evicting an entry if the cache is full.
+     *
+     * @param key   the key.
+     * @param value the value.
+     * @return the value associated to the key after the call.
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        Entry<K, V> existing = entries.get(key);
+        if (existing != null) {
+            return existing.value;
+        }
+        Entry<K, V> entry = new Entry<>(key, value);
+        if (size < clock.length) {
+            clock[size++] = entry;
+        } else {
+            // Terminates within two sweeps since each visited entry loses its mark
+            while (clock[hand].referenced) {
+                clock[hand].referenced = false;
+                hand = (hand + 1) % clock.length;
+            }
+            entries.remove(clock[hand].key);
+            clock[hand] = entry;
+            hand = (hand + 1) % clock.length;
+        }
+        entries.put(key, entry);
+        return value;
+    }
+
+    /**
+     * Removes all entries of the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        for (int i = 0; i < size; i++) {
+            clock[i] = null;
+        }
+        size = 0;
+        hand = 0;
+    }
+
+    /**
+     * @return the number of entries of the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private volatile boolean referenced;
+
+        private Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
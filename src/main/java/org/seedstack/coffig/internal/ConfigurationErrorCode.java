@@ -13,6 +13,7 @@ public enum ConfigurationErrorCode implements ErrorCode {
     CANNOT_CONVERT_ARRAY_TO_VALUE,
     CANNOT_CONVERT_MAP_TO_VALUE,
     CANNOT_SUPPLY_CONFIGURATION_OBJECT,
+    CIRCULAR_REFERENCE,
     ERROR_DURING_FIELD_ACCESS,
     ERROR_DURING_FIELD_INJECTION,
     ERROR_DURING_GETTER_INVOCATION,
@@ -23,6 +24,7 @@ public enum ConfigurationErrorCode implements ErrorCode {
     ILLEGAL_CONVERSION,
     ILLEGAL_TREE_ACCESS,
     ILLEGAL_TREE_MERGE,
+    INVALID_COMPILED_CONFIGURATION,
     NON_ASSIGNABLE_CLASS,
     PATH_NOT_FOUND,
     PROPERTY_NOT_FOUND,
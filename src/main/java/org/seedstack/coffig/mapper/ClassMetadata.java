@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.mapper;
+
+import static java.util.stream.Collectors.toList;
+import static org.seedstack.shed.reflect.ReflectUtils.makeAccessible;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.seedstack.coffig.Config;
+import org.seedstack.coffig.SingleValue;
+import org.seedstack.coffig.internal.ConfigurationErrorCode;
+import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.shed.reflect.Classes;
+
+/**
+ * Mapping metadata of a class, computed once and shared by every {@link ObjectMapper} of the class, whatever the
+ * configuration instance. Metadata is attached to its class through a {@link ClassValue}, so the registry is bounded by
+ * the loaded classes and doesn't prevent a class loader from being collected.
+ */
+final class ClassMetadata {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final ClassValue<ClassMetadata> REGISTRY = new ClassValue<ClassMetadata>() {
+        @Override
+        protected ClassMetadata computeValue(Class<?> someClass) {
+            return new ClassMetadata(someClass);
+        }
+    };
+    private final List<FieldInfo> fieldInfo;
+    private final FieldInfo valueFieldInfo;
+
+    private ClassMetadata(Class<?> someClass) {
+        this.fieldInfo = Collections.unmodifiableList(Classes.from(someClass)
+                .traversingSuperclasses()
+                .fields()
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(field -> new FieldInfo(someClass, field))
+                .collect(toList()));
+        this.valueFieldInfo = this.fieldInfo.stream().filter(fieldInfo -> fieldInfo.singleValue).findFirst()
+                .orElse(null);
+    }
+
+    static ClassMetadata of(Class<?> someClass) {
+        return REGISTRY.get(someClass);
+    }
+
+    List<FieldInfo> getFieldInfo() {
+        return fieldInfo;
+    }
+
+    FieldInfo getValueFieldInfo() {
+        return valueFieldInfo;
+    }
+
+    /**
+     * Holds the mapping information of a field. Accessors are resolved once per class as method handles adapted to a
+     * generic signature, so reading or writing the property doesn't involve reflective checks anymore.
+     */
+    static class FieldInfo {
+        final String name;
+        final String alias;
+        final String key;
+        final Type type;
+        final boolean singleValue;
+        private final String setterName;
+        private final String getterName;
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+        private final Exception setterFailure;
+        private final Exception getterFailure;
+
+        FieldInfo(Class<?> someClass, Field field) {
+            this.name = field.getName();
+            this.alias = resolveAlias(field);
+            this.key = alias != null ? alias : name;
+            this.type = field.getGenericType();
+            this.singleValue = field.isAnnotationPresent(SingleValue.class);
+
+            Optional<Method> setterMethod = getSetter(someClass, field);
+            MethodHandle resolvedSetter = null;
+            Exception resolvedSetterFailure = null;
+            try {
+                if (setterMethod.isPresent()) {
+                    resolvedSetter = LOOKUP.unreflect(makeAccessible(setterMethod.get())).asType(SETTER_TYPE);
+                } else {
+                    resolvedSetter = fieldHandle(field, true, SETTER_TYPE);
+                }
+            } catch (IllegalAccessException | RuntimeException e) {
+                resolvedSetterFailure = e;
+            }
+            this.setterName = setterMethod.map(Method::getName).orElse(null);
+            this.setter = resolvedSetter;
+            this.setterFailure = resolvedSetterFailure;
+
+            Optional<Method> getterMethod = getGetter(someClass, field);
+            MethodHandle resolvedGetter = null;
+            Exception resolvedGetterFailure = null;
+            try {
+                if (getterMethod.isPresent()) {
+                    resolvedGetter = LOOKUP.unreflect(makeAccessible(getterMethod.get())).asType(GETTER_TYPE);
+                } else {
+                    resolvedGetter = fieldHandle(field, false, GETTER_TYPE);
+                }
+            } catch (IllegalAccessException | RuntimeException e) {
+                resolvedGetterFailure = e;
+            }
+            this.getterName = getterMethod.map(Method::getName).orElse(null);
+            this.getter = resolvedGetter;
+            this.getterFailure = resolvedGetterFailure;
+        }
+
+        void set(Object holder, Object value) {
+            if (setter == null) {
+                // The exception is built on each call so its stack trace is the one of the caller
+                throw setterError(holder.getClass(), setterFailure);
+            }
+            try {
+                setter.invokeExact(holder, value);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw setterError(holder.getClass(), t);
+            }
+        }
+
+        Object get(Object holder) {
+            if (getter == null) {
+                throw getterError(holder.getClass(), getterFailure);
+            }
+            try {
+                return (Object) getter.invokeExact(holder);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw getterError(holder.getClass(), t);
+            }
+        }
+
+        private MethodHandle fieldHandle(Field field, boolean write, MethodType methodType)
+                throws IllegalAccessException {
+            makeAccessible(field);
+            try {
+                return (write ? LOOKUP.unreflectSetter(field) : LOOKUP.unreflectGetter(field)).asType(methodType);
+            } catch (IllegalAccessException e) {
+                // Some fields (like final ones on older JVMs) cannot be accessed directly: go through reflection
+                try {
+                    return LOOKUP.findVirtual(Field.class, write ? "set" : "get",
+                            methodType.dropParameterTypes(0, 1)).bindTo(field);
+                } catch (NoSuchMethodException nsme) {
+                    throw e;
+                }
+            }
+        }
+
+        private String resolveAlias(Field field) {
+            Config annotation = field.getAnnotation(Config.class);
+            if (annotation != null) {
+                return annotation.value();
+            }
+            annotation = field.getType().getAnnotation(Config.class);
+            if (annotation != null) {
+                return annotation.value();
+            }
+            return null;
+        }
+
+        private Optional<Method> getSetter(Class<?> someClass, Field field) {
+            String setterName = fieldToSetterName(field);
+            try {
+                Method setter = someClass.getDeclaredMethod(setterName, field.getType());
+                return Optional.of(setter);
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+
+        private Optional<Method> getGetter(Class<?> someClass, Field field) {
+            String getterName = fieldToGetterName(field);
+            try {
+                Method getter = someClass.getDeclaredMethod(getterName);
+                return Optional.of(getter);
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+
+        private String fieldToSetterName(Field field) {
+            return "set" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1);
+        }
+
+        private String fieldToGetterName(Field field) {
+            return "get" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1);
+        }
+
+        private ConfigurationException setterError(Class<?> someClass, Throwable t) {
+            if (setterName == null) {
+                return fieldInjectionError(someClass, t);
+            }
+            return ConfigurationException.wrap(t, ConfigurationErrorCode.ERROR_DURING_SETTER_INVOCATION)
+                    .put("class", someClass.getName())
+                    .put("setter", setterName);
+        }
+
+        private ConfigurationException fieldInjectionError(Class<?> someClass, Throwable t) {
+            return ConfigurationException.wrap(t, ConfigurationErrorCode.ERROR_DURING_FIELD_INJECTION)
+                    .put("class", someClass.getName())
+                    .put("field", name);
+        }
+
+        private ConfigurationException getterError(Class<?> someClass, Throwable t) {
+            if (getterName == null) {
+                return fieldAccessError(someClass, t);
+            }
+            return ConfigurationException.wrap(t, ConfigurationErrorCode.ERROR_DURING_GETTER_INVOCATION)
+                    .put("class", someClass.getName())
+                    .put("getter", getterName);
+        }
+
+        private ConfigurationException fieldAccessError(Class<?> someClass, Throwable t) {
+            return ConfigurationException.wrap(t, ConfigurationErrorCode.ERROR_DURING_FIELD_ACCESS)
+                    .put("class", someClass.getName())
+                    .put("field", name);
+        }
+    }
+}
@@ -10,13 +10,19 @@ package org.seedstack.coffig.mapper;
 import static org.seedstack.shed.reflect.Types.rawClassOf;
 
 import java.lang.reflect.Type;
-import java.util.Arrays;
+import java.util.Optional;
 import org.seedstack.coffig.Coffig;
 import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ClockCache;
 import org.seedstack.coffig.spi.BaseComposite;
 import org.seedstack.coffig.spi.ConfigurationMapper;
 
 public class CompositeMapper extends BaseComposite<ConfigurationMapper> implements ConfigurationMapper {
+    private static final int MAX_CACHED_TYPES = 1024;
+    // Classes are attached their mapper through a ClassValue so the cache doesn't pin their class loader
+    private volatile ClassValue<Optional<ConfigurationMapper>> resolvedClassMappers = newClassMappers();
+    private final ClockCache<Type, Optional<ConfigurationMapper>> resolvedTypeMappers = new ClockCache<>(
+            MAX_CACHED_TYPES);
     private Coffig coffig;
 
     public CompositeMapper(ConfigurationMapper... items) {
@@ -29,6 +35,13 @@ public class CompositeMapper extends BaseComposite<ConfigurationMapper> implemen
         this.coffig = coffig;
     }
 
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        resolvedClassMappers = newClassMappers();
+        resolvedTypeMappers.clear();
+    }
+
     @Override
     protected CompositeMapper doFork(ConfigurationMapper... items) {
         return new CompositeMapper(items);
@@ -36,7 +49,7 @@ public class CompositeMapper extends BaseComposite<ConfigurationMapper> implemen
 
     @Override
     public boolean canHandle(Type type) {
-        return Arrays.stream(items).anyMatch(item -> item.canHandle(type));
+        return resolveMapper(type).isPresent();
     }
 
     public Object map(TreeNode treeNode, Type type) {
@@ -44,10 +57,9 @@ public class CompositeMapper extends BaseComposite<ConfigurationMapper> implemen
             return null;
         }
 
-        for (ConfigurationMapper configurationMapper : items) {
-            if (configurationMapper.canHandle(type)) {
-                return configurationMapper.map(treeNode, type);
-            }
+        Optional<ConfigurationMapper> configurationMapper = resolveMapper(type);
+        if (configurationMapper.isPresent()) {
+            return configurationMapper.get().map(treeNode, type);
         }
 
         ObjectMapper<?> objectMapper = new ObjectMapper<>(rawClassOf(type));
@@ -60,14 +72,42 @@ public class CompositeMapper extends BaseComposite<ConfigurationMapper> implemen
             return null;
         }
 
-        for (ConfigurationMapper configurationMapper : items) {
-            if (configurationMapper.canHandle(type)) {
-                return configurationMapper.unmap(object, type);
-            }
+        Optional<ConfigurationMapper> configurationMapper = resolveMapper(type);
+        if (configurationMapper.isPresent()) {
+            return configurationMapper.get().unmap(object, type);
         }
 
         ObjectMapper<Object> objectMapper = new ObjectMapper<>(object);
         objectMapper.initialize(coffig);
         return objectMapper.unmap();
     }
+
+    private Optional<ConfigurationMapper> resolveMapper(Type type) {
+        if (type == null) {
+            return findMapper(null);
+        } else if (type instanceof Class) {
+            return resolvedClassMappers.get((Class<?>) type);
+        } else {
+            return resolvedTypeMappers.computeIfAbsent(type, this::findMapper);
+        }
+    }
+
+    private ClassValue<Optional<ConfigurationMapper>> newClassMappers() {
+        return new ClassValue<Optional<ConfigurationMapper>>() {
+            @Override
+            protected Optional<ConfigurationMapper> computeValue(Class<?> someClass) {
+                return findMapper(someClass);
+            }
+        };
+    }
+
+    private Optional<ConfigurationMapper> findMapper(Type type) {
+        for (ConfigurationMapper configurationMapper : items) {
+            if (configurationMapper.canHandle(type)) {
+                return Optional.of(configurationMapper);
+            }
+        }
+        // An empty result means that the type will be handled by object mapping
+        return Optional.empty();
+    }
 }
@@ -8,17 +8,42 @@
 package org.seedstack.coffig.mapper;
 
 import java.lang.reflect.Type;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import org.seedstack.coffig.Coffig;
 import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.evaluator.EvaluationContext;
+import org.seedstack.coffig.internal.ClockCache;
+import org.seedstack.coffig.node.NamedNode;
 import org.seedstack.coffig.spi.ConfigurationEvaluator;
 import org.seedstack.coffig.spi.ConfigurationMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class EvaluatingMapper implements ConfigurationMapper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EvaluatingMapper.class);
+    private static final int MAX_CACHED_EVALUATIONS = 16384;
     private final ConfigurationMapper mapper;
     private final ConfigurationEvaluator evaluator;
+    private final boolean eager;
+    private volatile EvaluationCache evaluationCache = new EvaluationCache(null, null);
+    private volatile Resolution resolution = new Resolution(null);
     private Coffig coffig;
 
     public EvaluatingMapper(ConfigurationMapper mapper, ConfigurationEvaluator evaluator) {
+        this(mapper, evaluator, false);
+    }
+
+    /**
+     * Creates an evaluating mapper.
+     *
+     * @param mapper    the mapper to delegate to once values are evaluated.
+     * @param evaluator the evaluator to apply.
+     * @param eager     if true, the whole configuration tree is evaluated once each time it changes and mapping the
+     *                  nodes of the tree doesn't involve the evaluator anymore.
+     */
+    public EvaluatingMapper(ConfigurationMapper mapper, ConfigurationEvaluator evaluator, boolean eager) {
         if (mapper == null) {
             throw new NullPointerException("Mapper cannot be null");
         }
@@ -27,6 +52,7 @@ public class EvaluatingMapper implements ConfigurationMapper {
             throw new NullPointerException("Evaluator cannot be null");
         }
         this.evaluator = evaluator;
+        this.eager = eager;
     }
 
     @Override
@@ -34,12 +60,18 @@ public class EvaluatingMapper implements ConfigurationMapper {
         this.coffig = coffig;
         mapper.initialize(coffig);
         evaluator.initialize(coffig);
+        if (eager) {
+            // Resolve the tree as soon as it changes instead of on the first access
+            coffig.registerListener("", changedCoffig -> resolve(changedCoffig.getTree()));
+        }
     }
 
     @Override
     public void invalidate() {
         mapper.invalidate();
         evaluator.invalidate();
+        evaluationCache = new EvaluationCache(null, null);
+        resolution = new Resolution(null);
     }
 
     @Override
@@ -47,11 +79,16 @@ public class EvaluatingMapper implements ConfigurationMapper {
         return mapper.isDirty() || evaluator.isDirty();
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return mapper.isDirtyTracked() && evaluator.isDirtyTracked();
+    }
+
     @Override
     public EvaluatingMapper fork() {
         ConfigurationMapper forkedMapper = (ConfigurationMapper) mapper.fork();
         ConfigurationEvaluator forkedEvaluator = (ConfigurationEvaluator) evaluator.fork();
-        return new EvaluatingMapper(forkedMapper, forkedEvaluator);
+        return new EvaluatingMapper(forkedMapper, forkedEvaluator, eager);
     }
 
     @Override
@@ -61,7 +98,20 @@ public class EvaluatingMapper implements ConfigurationMapper {
 
     @Override
     public Object map(TreeNode treeNode, Type type) {
-        return mapper.map(evaluator.evaluate(coffig.getTree(), treeNode), type);
+        // Reads of a snapshot pin its tree, which may no longer be the current one
+        TreeNode currentRootNode = coffig.getTree();
+        TreeNode rootNode = EvaluationContext.pinnedRootNode();
+        if (rootNode == null) {
+            rootNode = currentRootNode;
+        }
+        if (eager && rootNode == currentRootNode) {
+            Evaluation evaluation = resolve(rootNode).nodes.get(treeNode);
+            if (evaluation != null) {
+                EvaluationContext.recordReferences(evaluation.references);
+                return mapper.map(evaluation.result, type);
+            }
+        }
+        return mapper.map(evaluate(rootNode, treeNode, rootNode == currentRootNode), type);
     }
 
     @Override
@@ -76,4 +126,183 @@ public class EvaluatingMapper implements ConfigurationMapper {
     public ConfigurationEvaluator getEvaluator() {
         return evaluator;
     }
+
+    public boolean isEager() {
+        return eager;
+    }
+
+    /**
+     * Evaluates every value of the specified tree, unless it has already been done. Only deterministic results are
+     * retained, others are evaluated again on each access.
+     */
+    private Resolution resolve(TreeNode rootNode) {
+        Resolution currentResolution = resolution;
+        if (currentResolution.rootNode != rootNode) {
+            synchronized (this) {
+                currentResolution = resolution;
+                if (currentResolution.rootNode != rootNode) {
+                    LOGGER.debug("Evaluating configuration tree");
+                    currentResolution = new Resolution(rootNode);
+                    resolveNode(rootNode, "", currentResolution);
+                    resolution = currentResolution;
+                }
+            }
+        }
+        return currentResolution;
+    }
+
+    private void resolveNode(TreeNode treeNode, String path, Resolution resolution) {
+        switch (treeNode.type()) {
+            case MAP_NODE:
+                treeNode.namedNodes().forEach(namedNode -> resolveNode(namedNode.node(),
+                        path.isEmpty() ? namedNode.name() : path + "." + namedNode.name(), resolution));
+                break;
+            case ARRAY_NODE:
+                TreeNode[] items = treeNode.nodes().toArray(TreeNode[]::new);
+                for (int i = 0; i < items.length; i++) {
+                    resolveNode(items[i], path + "[" + i + "]", resolution);
+                }
+                break;
+            case VALUE_NODE:
+                if (!treeNode.isEmpty()) {
+                    boolean deterministic;
+                    TreeNode result;
+                    EvaluationContext evaluationContext = EvaluationContext.open();
+                    try {
+                        result = evaluate(resolution.rootNode, treeNode, true);
+                    } finally {
+                        deterministic = evaluationContext.close();
+                    }
+                    if (deterministic) {
+                        resolution.nodes.put(treeNode, new Evaluation(result, evaluationContext.getReferences(),
+                                evaluationContext.isTracked()));
+                    }
+                    if (result.type() == TreeNode.Type.VALUE_NODE && isNodeError(result.value())) {
+                        LOGGER.warn("Configuration value at '{}' cannot be evaluated: {}", path, result.value());
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported node type " + treeNode.type());
+        }
+    }
+
+    private boolean isNodeError(String value) {
+        return value != null && value.startsWith("<!! ") && value.endsWith(" !!>");
+    }
+
+    /**
+     * Evaluates a node against the specified tree. Results are only cached for the current tree, so reading older
+     * trees (like the tree of a snapshot) doesn't replace the cached results of the current one.
+     */
+    private TreeNode evaluate(TreeNode rootNode, TreeNode treeNode, boolean cached) {
+        if (!cached || treeNode == null || treeNode.type() != TreeNode.Type.VALUE_NODE || treeNode.isEmpty()) {
+            return evaluator.evaluate(rootNode, treeNode);
+        }
+
+        // Evaluation results are only valid for the tree they were evaluated against
+        EvaluationCache currentCache = evaluationCache;
+        if (currentCache.rootNode != rootNode) {
+            currentCache = new EvaluationCache(rootNode, currentCache.rootNode == null ? null : currentCache);
+            evaluationCache = currentCache;
+        }
+
+        String value = treeNode.value();
+        Evaluation evaluation = currentCache.get(value);
+        if (evaluation != null) {
+            EvaluationContext.recordReferences(evaluation.references);
+            return evaluation.result;
+        }
+
+        boolean deterministic;
+        TreeNode result;
+        EvaluationContext evaluationContext = EvaluationContext.open();
+        try {
+            result = evaluator.evaluate(rootNode, treeNode);
+        } finally {
+            deterministic = evaluationContext.close();
+        }
+        if (deterministic) {
+            currentCache.put(value, new Evaluation(result, evaluationContext.getReferences(),
+                    evaluationContext.isTracked()));
+        }
+        return result;
+    }
+
+    private static boolean isUnchanged(Set<String> paths, TreeNode oldRootNode, TreeNode newRootNode) {
+        for (String path : paths) {
+            TreeNode oldNode = oldRootNode.get(path).orElse(null);
+            TreeNode newNode = newRootNode.get(path).orElse(null);
+            if (oldNode != newNode && (oldNode == null || !oldNode.equals(newNode))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Evaluation {
+        private final TreeNode result;
+        private final Set<String> references;
+        private final boolean tracked;
+
+        private Evaluation(TreeNode result, Set<String> references, boolean tracked) {
+            this.result = result;
+            this.references = references;
+            this.tracked = tracked;
+        }
+    }
+
+    /**
+     * Evaluation results for a particular tree. Failed evaluations are never cached. Results of the previous tree are
+     * reused if all the nodes they depend on were recorded as references and none of them has changed, so only values
+     * depending on a change are evaluated again. Results are bounded by CLOCK
+     * eviction so values evaluated again keep being cached when there are more distinct values than the capacity.
+     */
+    private static class EvaluationCache {
+        private final TreeNode rootNode;
+        private final ClockCache<String, Evaluation> results = new ClockCache<>(MAX_CACHED_EVALUATIONS);
+        private volatile EvaluationCache previous;
+
+        private EvaluationCache(TreeNode rootNode, EvaluationCache previous) {
+            this.rootNode = rootNode;
+            this.previous = previous;
+            if (previous != null) {
+                // Only keep one generation of results
+                previous.previous = null;
+            }
+        }
+
+        private Evaluation get(String value) {
+            Evaluation evaluation = results.get(value);
+            if (evaluation == null) {
+                EvaluationCache previousCache = previous;
+                if (previousCache != null) {
+                    evaluation = previousCache.results.get(value);
+                    if (evaluation != null) {
+                        if (evaluation.tracked
+                                && isUnchanged(evaluation.references, previousCache.rootNode, rootNode)) {
+                            put(value, evaluation);
+                        } else {
+                            evaluation = null;
+                        }
+                    }
+                }
+            }
+            return evaluation;
+        }
+
+        private void put(String value, Evaluation evaluation) {
+            results.putIfAbsent(value, evaluation);
+        }
+    }
+
+    private static class Resolution {
+        private final TreeNode rootNode;
+        // Evaluations by original node, the original nodes being part of the tree they are compared by identity
+        private final Map<TreeNode, Evaluation> nodes = new IdentityHashMap<>();
+
+        private Resolution(TreeNode rootNode) {
+            this.rootNode = rootNode;
+        }
+    }
 }
@@ -7,47 +7,26 @@
  */
 package org.seedstack.coffig.mapper;
 
-import static java.util.stream.Collectors.toList;
 import static org.seedstack.shed.reflect.Classes.instantiateDefault;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.Type;
-import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
-import java.util.function.Consumer;
-import java.util.function.Supplier;
 import org.seedstack.coffig.Coffig;
-import org.seedstack.coffig.Config;
-import org.seedstack.coffig.SingleValue;
 import org.seedstack.coffig.TreeNode;
-import org.seedstack.coffig.internal.ConfigurationErrorCode;
-import org.seedstack.coffig.internal.ConfigurationException;
 import org.seedstack.coffig.node.MapNode;
 import org.seedstack.coffig.spi.ConfigurationComponent;
-import org.seedstack.shed.reflect.Classes;
 
 class ObjectMapper<T> implements ConfigurationComponent {
-    private final Class<T> someClass;
-    private final List<FieldInfo> fieldInfo;
-    private final FieldInfo valueFieldInfo;
+    private final ClassMetadata classMetadata;
     private final T holder;
     private Coffig coffig;
 
     ObjectMapper(Class<T> someClass) {
-        this.someClass = someClass;
-        this.fieldInfo = getFieldInfo();
-        this.valueFieldInfo = getValueFieldInfo();
+        this.classMetadata = ClassMetadata.of(someClass);
         this.holder = instantiateDefault(someClass);
     }
 
-    @SuppressWarnings("unchecked")
     ObjectMapper(T object) {
-        this.someClass = (Class<T>) object.getClass();
-        this.fieldInfo = getFieldInfo();
-        this.valueFieldInfo = getValueFieldInfo();
+        this.classMetadata = ClassMetadata.of(object.getClass());
         this.holder = object;
     }
 
@@ -57,161 +36,26 @@ class ObjectMapper<T> implements ConfigurationComponent {
     }
 
     T map(TreeNode rootNode) {
+        ClassMetadata.FieldInfo valueFieldInfo = classMetadata.getValueFieldInfo();
         if (rootNode.type() == TreeNode.Type.VALUE_NODE && valueFieldInfo != null) {
             Optional.ofNullable(coffig.getMapper().map(rootNode, valueFieldInfo.type))
-                    .ifPresent(valueFieldInfo.consumer);
+                    .ifPresent(value -> valueFieldInfo.set(holder, value));
         } else if (rootNode.type() == TreeNode.Type.MAP_NODE) {
-            fieldInfo.forEach(fieldInfo -> rootNode.get(fieldInfo.alias != null ? fieldInfo.alias : fieldInfo.name)
-                    .map(treeNode -> coffig.getMapper().map(treeNode, fieldInfo.type))
-                    .ifPresent(fieldInfo.consumer));
+            for (ClassMetadata.FieldInfo fieldInfo : classMetadata.getFieldInfo()) {
+                rootNode.get(fieldInfo.key)
+                        .map(treeNode -> coffig.getMapper().map(treeNode, fieldInfo.type))
+                        .ifPresent(value -> fieldInfo.set(holder, value));
+            }
         }
         return holder;
     }
 
     TreeNode unmap() {
         MapNode rootNode = new MapNode();
-        fieldInfo.forEach(fieldInfo -> Optional.ofNullable(coffig.getMapper()
-                .unmap(fieldInfo.supplier.get(), fieldInfo.type))
-                .ifPresent(treeNode -> rootNode.set(fieldInfo.alias != null ? fieldInfo.alias : fieldInfo.name,
-                        treeNode)));
-        return rootNode;
-    }
-
-    private FieldInfo getValueFieldInfo() {
-        FieldInfo valueFieldInfo = null;
-        for (FieldInfo fieldInfo : this.fieldInfo) {
-            if (fieldInfo.singleValue) {
-                valueFieldInfo = fieldInfo;
-                break;
-            }
-        }
-        return valueFieldInfo;
-    }
-
-    private List<FieldInfo> getFieldInfo() {
-        return Classes.from(someClass)
-                .traversingSuperclasses()
-                .fields()
-                .filter(field -> !Modifier.isStatic(field.getModifiers()))
-                .map(FieldInfo::new)
-                .collect(toList());
-    }
-
-    private class FieldInfo {
-        final String name;
-        final String alias;
-        final Type type;
-        final Consumer<Object> consumer;
-        final Supplier<Object> supplier;
-        final boolean singleValue;
-
-        FieldInfo(Field field) {
-            this.name = field.getName();
-            this.alias = resolveAlias(field);
-            this.type = field.getGenericType();
-            this.consumer = getPropertyConsumer(field);
-            this.supplier = getPropertySupplier(field);
-            this.singleValue = field.isAnnotationPresent(SingleValue.class);
-        }
-
-        private String resolveAlias(Field field) {
-            Config annotation = field.getAnnotation(Config.class);
-            if (annotation != null) {
-                return annotation.value();
-            }
-            annotation = field.getType().getAnnotation(Config.class);
-            if (annotation != null) {
-                return annotation.value();
-            }
-            return null;
-        }
-
-        private Consumer<Object> getPropertyConsumer(Field field) {
-            Optional<Method> setter = getSetter(field);
-            return setter.map(this::getSetterConsumer).orElseGet(() -> getFieldConsumer(field));
-        }
-
-        private Supplier<Object> getPropertySupplier(Field field) {
-            Optional<Method> getter = getGetter(field);
-            return getter.map(this::getGetterSupplier).orElseGet(() -> getFieldSupplier(field));
-        }
-
-        private Optional<Method> getSetter(Field field) {
-            String setterName = fieldToSetterName(field);
-            try {
-                Method setter = someClass.getDeclaredMethod(setterName, field.getType());
-                return Optional.of(setter);
-            } catch (NoSuchMethodException e) {
-                return Optional.empty();
-            }
-        }
-
-        private Optional<Method> getGetter(Field field) {
-            String getterName = fieldToGetterName(field);
-            try {
-                Method getter = someClass.getDeclaredMethod(getterName);
-                return Optional.of(getter);
-            } catch (NoSuchMethodException e) {
-                return Optional.empty();
-            }
-        }
-
-        private String fieldToSetterName(Field field) {
-            return "set" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1);
-        }
-
-        private String fieldToGetterName(Field field) {
-            return "get" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1);
-        }
-
-        private Consumer<Object> getSetterConsumer(Method setter) {
-            return o -> {
-                try {
-                    setter.invoke(holder, o);
-                } catch (Exception e) {
-                    throw ConfigurationException.wrap(e, ConfigurationErrorCode.ERROR_DURING_SETTER_INVOCATION)
-                            .put("class", holder.getClass().getName())
-                            .put("setter", setter.getName());
-                }
-            };
-        }
-
-        private Consumer<Object> getFieldConsumer(Field field) {
-            return o -> {
-                field.setAccessible(true);
-                try {
-                    field.set(holder, o);
-                } catch (Exception e) {
-                    throw ConfigurationException.wrap(e, ConfigurationErrorCode.ERROR_DURING_FIELD_INJECTION)
-                            .put("class", holder.getClass().getName())
-                            .put("field", field.getName());
-                }
-            };
-        }
-
-        private Supplier<Object> getGetterSupplier(Method getter) {
-            return () -> {
-                try {
-                    return getter.invoke(holder);
-                } catch (Exception e) {
-                    throw ConfigurationException.wrap(e, ConfigurationErrorCode.ERROR_DURING_GETTER_INVOCATION)
-                            .put("class", holder.getClass().getName())
-                            .put("getter", getter.getName());
-                }
-            };
-        }
-
-        private Supplier<Object> getFieldSupplier(Field field) {
-            return () -> {
-                field.setAccessible(true);
-                try {
-                    return field.get(holder);
-                } catch (Exception e) {
-                    throw ConfigurationException.wrap(e, ConfigurationErrorCode.ERROR_DURING_FIELD_ACCESS)
-                            .put("class", holder.getClass().getName())
-                            .put("field", field.getName());
-                }
-            };
+        for (ClassMetadata.FieldInfo fieldInfo : classMetadata.getFieldInfo()) {
+            Optional.ofNullable(coffig.getMapper().unmap(fieldInfo.get(holder), fieldInfo.type))
+                    .ifPresent(treeNode -> rootNode.set(fieldInfo.key, treeNode));
         }
+        return rootNode;
     }
 }
@@ -49,6 +49,11 @@ public class ValidatingMapper implements ConfigurationMapper {
         return mapper.isDirty();
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return mapper.isDirtyTracked();
+    }
+
     @Override
     public ConfigurationComponent fork() {
         return new ValidatingMapper((ConfigurationMapper) mapper.fork(), validatorFactory);
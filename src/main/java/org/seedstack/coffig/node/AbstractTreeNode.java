@@ -26,7 +26,15 @@ abstract class AbstractTreeNode implements TreeNode {
         this.hidden = true;
     }
 
-    String indent(String s) {
+    /**
+     * Immutable and unmodifiable nodes compare their content with any node of the same type, so mutable nodes delegate
+     * to them to keep equality symmetric.
+     */
+    static boolean isOtherFamily(Object o) {
+        return o instanceof ImmutableTreeNode || o instanceof UnmodifiableTreeNode;
+    }
+
+    static String indent(String s) {
         return Arrays.stream(s.split("\n")).map(line -> "  " + line).collect(Collectors.joining("\n"));
     }
 }
@@ -79,19 +79,24 @@ public class ArrayNode extends AbstractTreeNode {
         if (path.isEmpty()) {
             return Optional.of(this);
         }
+        return get(Path.parse(path));
+    }
 
-        Path path2 = new Path(path);
-        Optional<TreeNode> treeNode = Optional.empty();
-        if (path2.isArray()) {
-            int index = path2.getIndex();
+    @Override
+    public Optional<TreeNode> get(Path path) {
+        if (path.isArray()) {
+            int index = path.getIndex();
             if (index >= 0 && index < children.size()) {
-                treeNode = Optional.ofNullable(children.get(index));
-            }
-            if (treeNode.isPresent() && path2.hasTail()) {
-                return treeNode.get().get(path2.getTail());
+                TreeNode child = children.get(index);
+                if (child != null && path.hasTail()) {
+                    return child.get(path.getTailPath());
+                }
+                return Optional.ofNullable(child);
             }
+        } else if (path.isEmpty()) {
+            return Optional.of(this);
         }
-        return treeNode;
+        return Optional.empty();
     }
 
     @Override
@@ -113,28 +118,33 @@ public class ArrayNode extends AbstractTreeNode {
     public TreeNode set(String name, TreeNode treeNode) {
         if (name == null) {
             children.add(treeNode);
+            return this;
         } else {
-            Path path = new Path(name);
-            TreeNode newTreeNode;
-            if (path.hasTail()) {
-                newTreeNode = getOrCreateTreeNode(path);
-                newTreeNode.set(path.getTail(), treeNode);
-            } else {
-                newTreeNode = treeNode;
-            }
+            return setAt(Path.parse(name), treeNode);
+        }
+    }
 
-            if (path.getIndex() == children.size()) {
-                children.add(newTreeNode);
-            } else {
-                children.set(path.getIndex(), newTreeNode);
-            }
+    @Override
+    public TreeNode setAt(Path path, TreeNode treeNode) {
+        TreeNode newTreeNode;
+        if (path.hasTail()) {
+            newTreeNode = getOrCreateTreeNode(path);
+            newTreeNode.setAt(path.getTailPath(), treeNode);
+        } else {
+            newTreeNode = treeNode;
+        }
+
+        if (path.getIndex() == children.size()) {
+            children.add(newTreeNode);
+        } else {
+            children.set(path.getIndex(), newTreeNode);
         }
         return this;
     }
 
     @Override
     public TreeNode remove(String name) {
-        Path path = new Path(name);
+        Path path = Path.parse(name);
         if (path.hasTail()) {
             if (children.size() > path.getIndex()) {
                 TreeNode treeNode = children.get(path.getIndex());
@@ -155,11 +165,26 @@ public class ArrayNode extends AbstractTreeNode {
         }
     }
 
+    @Override
+    public ArrayNode copy() {
+        ArrayNode copy = new ArrayNode();
+        for (TreeNode child : children) {
+            copy.children.add(child == null ? null : child.copy());
+        }
+        if (isHidden()) {
+            copy.hide();
+        }
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
             return true;
         }
+        if (isOtherFamily(o)) {
+            return o.equals(this);
+        }
         if (o == null || !getClass().isAssignableFrom(o.getClass()) && !o.getClass().isAssignableFrom(getClass())) {
             return false;
         }
@@ -194,7 +219,7 @@ public class ArrayNode extends AbstractTreeNode {
         if (children.size() > index) {
             treeNode = children.get(index);
         } else {
-            treeNode = new Path(path.getTail()).createNode();
+            treeNode = path.getTailPath().createNode();
         }
         return treeNode;
     }
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.node;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ConfigurationErrorCode;
+import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.internal.PropertyNotFoundException;
+import org.seedstack.coffig.spi.ConfigurationMapper;
+
+final class ImmutableArrayNode extends ImmutableTreeNode {
+    private final TreeNode[] children;
+    private final int hash;
+
+    private ImmutableArrayNode(TreeNode[] children, boolean hidden) {
+        super(hidden);
+        this.children = children;
+        // Same as an ArrayNode with the same content, children hashes being already computed
+        this.hash = Arrays.hashCode(children);
+    }
+
+    static ImmutableArrayNode of(TreeNode treeNode, ImmutableArrayNode previous) {
+        TreeNode[] source = treeNode.nodes().toArray(TreeNode[]::new);
+        TreeNode[] children = new TreeNode[source.length];
+        boolean unchanged = previous != null
+                && previous.isHidden() == treeNode.isHidden()
+                && previous.children.length == source.length;
+        for (int i = 0; i < source.length; i++) {
+            TreeNode previousChild = previous != null && i < previous.children.length ? previous.children[i] : null;
+            children[i] = source[i] == null ? null : ImmutableTreeNode.of(source[i], previousChild);
+            unchanged = unchanged && children[i] == previous.children[i];
+        }
+        return unchanged ? previous : new ImmutableArrayNode(children, treeNode.isHidden());
+    }
+
+    @Override
+    public Type type() {
+        return Type.ARRAY_NODE;
+    }
+
+    @Override
+    public String value() {
+        throw ConfigurationException.createNew(ConfigurationErrorCode.CANNOT_CONVERT_ARRAY_TO_VALUE);
+    }
+
+    @Override
+    public Stream<TreeNode> nodes() {
+        return Stream.of(children);
+    }
+
+    @Override
+    public Stream<NamedNode> namedNodes() {
+        return Stream.of(children).map(child -> new NamedNode(child.value(), (String) null));
+    }
+
+    @Override
+    public TreeNode node(String key) {
+        try {
+            return children[Integer.parseInt(key)];
+        } catch (Exception e) {
+            throw new PropertyNotFoundException(key, e);
+        }
+    }
+
+    @Override
+    public Optional<TreeNode> get(Path path) {
+        if (path.isArray()) {
+            int index = path.getIndex();
+            if (index >= 0 && index < children.length) {
+                TreeNode child = children[index];
+                if (child != null && path.hasTail()) {
+                    return child.get(path.getTailPath());
+                }
+                return optionalOf(child);
+            }
+        } else if (path.isEmpty()) {
+            return self();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Stream<TreeNode> walk() {
+        return Stream.concat(Stream.of(this), Stream.of(children).flatMap(TreeNode::walk));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return children.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof ImmutableArrayNode) {
+            ImmutableArrayNode other = (ImmutableArrayNode) o;
+            return hash == other.hash && Arrays.equals(children, other.children);
+        } else if (o instanceof TreeNode && ((TreeNode) o).type() == Type.ARRAY_NODE) {
+            Iterator<TreeNode> items = ((TreeNode) o).nodes().iterator();
+            for (TreeNode child : children) {
+                if (!items.hasNext() || !Objects.equals(child, items.next())) {
+                    return false;
+                }
+            }
+            return !items.hasNext();
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toMappedString(ConfigurationMapper mapper) {
+        if (isHidden()) {
+            return "\"" + AbstractTreeNode.HIDDEN_PLACEHOLDER + "\"";
+        } else if (children.length > 0 && children[0].type() == Type.VALUE_NODE) {
+            return Stream.of(children).map(item -> "- " + item.toMappedString(mapper)).collect(joining("\n"));
+        } else {
+            return Stream.of(children).map(item -> "-\n" + AbstractTreeNode.indent(item.toMappedString(mapper))).collect(joining("\n"));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.node;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ConfigurationErrorCode;
+import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.internal.PropertyNotFoundException;
+import org.seedstack.coffig.spi.ConfigurationMapper;
+
+final class ImmutableMapNode extends ImmutableTreeNode {
+    private final String[] keys;
+    private final TreeNode[] children;
+    private final NamedNode[] namedNodes;
+    private final int hash;
+
+    private ImmutableMapNode(String[] keys, TreeNode[] children, boolean hidden) {
+        super(hidden);
+        this.keys = keys;
+        this.children = children;
+        this.namedNodes = new NamedNode[keys.length];
+        // Same as a MapNode with the same content, children hashes being already computed
+        int hashCode = 0;
+        for (int i = 0; i < keys.length; i++) {
+            namedNodes[i] = new NamedNode(keys[i], children[i]);
+            hashCode += keys[i].hashCode() ^ Objects.hashCode(children[i]);
+        }
+        this.hash = 31 + hashCode;
+    }
+
+    static ImmutableMapNode of(TreeNode treeNode, ImmutableMapNode previous) {
+        NamedNode[] source = treeNode.namedNodes()
+                .sorted(Comparator.comparing(NamedNode::name))
+                .toArray(NamedNode[]::new);
+        String[] keys = new String[source.length];
+        TreeNode[] children = new TreeNode[source.length];
+        boolean unchanged = previous != null
+                && previous.isHidden() == treeNode.isHidden()
+                && previous.keys.length == source.length;
+        for (int i = 0; i < source.length; i++) {
+            keys[i] = source[i].name();
+            TreeNode previousChild = previous != null ? previous.child(keys[i]) : null;
+            TreeNode child = source[i].node();
+            children[i] = child == null ? null : ImmutableTreeNode.of(child, previousChild);
+            unchanged = unchanged && keys[i].equals(previous.keys[i]) && children[i] == previous.children[i];
+        }
+        return unchanged ? previous : new ImmutableMapNode(keys, children, treeNode.isHidden());
+    }
+
+    @Override
+    public Type type() {
+        return Type.MAP_NODE;
+    }
+
+    @Override
+    public String value() {
+        throw ConfigurationException.createNew(ConfigurationErrorCode.CANNOT_CONVERT_MAP_TO_VALUE);
+    }
+
+    @Override
+    public Stream<TreeNode> nodes() {
+        return Stream.of(children);
+    }
+
+    @Override
+    public Stream<NamedNode> namedNodes() {
+        return Stream.of(namedNodes);
+    }
+
+    @Override
+    public TreeNode node(String key) {
+        int i = Arrays.binarySearch(keys, key);
+        if (i >= 0) {
+            return children[i];
+        } else {
+            throw new PropertyNotFoundException(key);
+        }
+    }
+
+    @Override
+    public Optional<TreeNode> get(Path path) {
+        if (path.hasHead()) {
+            TreeNode child = child(path.getHead());
+            if (child != null) {
+                if (path.hasTail()) {
+                    return child.get(path.getTailPath());
+                } else {
+                    return optionalOf(child);
+                }
+            }
+        } else if (path.isEmpty()) {
+            return self();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Stream<TreeNode> walk() {
+        return Stream.concat(Stream.of(this), Stream.of(children).flatMap(TreeNode::walk));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof ImmutableMapNode) {
+            ImmutableMapNode other = (ImmutableMapNode) o;
+            return hash == other.hash && Arrays.equals(keys, other.keys) && Arrays.equals(children, other.children);
+        } else if (o instanceof TreeNode && ((TreeNode) o).type() == Type.MAP_NODE) {
+            // Keys are sorted so the children of the other node are looked up without building a map
+            int[] count = {0};
+            return ((TreeNode) o).namedNodes().allMatch(namedNode -> {
+                int index = Arrays.binarySearch(keys, namedNode.name());
+                count[0]++;
+                return index >= 0 && Objects.equals(children[index], namedNode.node());
+            }) && count[0] == keys.length;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toMappedString(ConfigurationMapper mapper) {
+        if (isHidden()) {
+            return "\"" + AbstractTreeNode.HIDDEN_PLACEHOLDER + "\"";
+        } else {
+            return Stream.of(namedNodes).map(namedNode -> {
+                if (namedNode.node().type() == Type.VALUE_NODE) {
+                    return namedNode.name() + ": " + namedNode.node().toMappedString(mapper);
+                } else {
+                    return namedNode.name() + ":\n" + AbstractTreeNode.indent(namedNode.node().toMappedString(mapper));
+                }
+            }).collect(Collectors.joining("\n"));
+        }
+    }
+
+    private TreeNode child(String key) {
+        int i = Arrays.binarySearch(keys, key);
+        return i >= 0 ? children[i] : null;
+    }
+}
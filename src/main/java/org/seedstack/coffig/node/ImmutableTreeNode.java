@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.node;
+
+import java.util.Optional;
+import org.seedstack.coffig.TreeNode;
+
+/**
+ * Base class of the immutable node family used for configuration snapshots. Contrary to {@link UnmodifiableTreeNode}
+ * which wraps a mutable tree on each access, an immutable tree is built once and can be read without allocating any
+ * intermediate node. When a tree is frozen against a previous snapshot, the subtrees that did not change are reused
+ * from that snapshot.
+ *
+ * <p>Immutable nodes compute their hash code once, from the already computed hash codes of their children. Equality
+ * checks between immutable nodes reject nodes with different hash codes without visiting their content. Equality is
+ * structural across node families: an immutable node is equal to any node of the same type and content, mutable or
+ * unmodifiable.</p>
+ */
+public abstract class ImmutableTreeNode implements TreeNode {
+    private static final String UNMODIFIABLE_ERROR = "Attempt to alter an unmodifiable tree node";
+    private final boolean hidden;
+    private final Optional<TreeNode> self;
+
+    ImmutableTreeNode(boolean hidden) {
+        this.hidden = hidden;
+        this.self = Optional.of(this);
+    }
+
+    /**
+     * Creates an immutable copy of the specified tree.
+     *
+     * @param treeNode the tree to freeze.
+     * @return the immutable tree.
+     */
+    public static TreeNode of(TreeNode treeNode) {
+        return of(treeNode, null);
+    }
+
+    /**
+     * Creates an immutable copy of the specified tree, reusing the unchanged subtrees of a previous immutable tree.
+     *
+     * @param treeNode the tree to freeze.
+     * @param previous the previous immutable tree or null.
+     * @return the immutable tree, which is the previous tree itself if nothing changed.
+     */
+    public static TreeNode of(TreeNode treeNode, TreeNode previous) {
+        if (treeNode == null) {
+            throw new IllegalArgumentException("Null tree node not allowed");
+        }
+        if (treeNode instanceof ImmutableTreeNode) {
+            return treeNode;
+        }
+        switch (treeNode.type()) {
+            case MAP_NODE:
+                return ImmutableMapNode.of(treeNode, previous instanceof ImmutableMapNode ? (ImmutableMapNode) previous : null);
+            case ARRAY_NODE:
+                return ImmutableArrayNode.of(treeNode, previous instanceof ImmutableArrayNode ? (ImmutableArrayNode) previous : null);
+            default:
+                return ImmutableValueNode.of(treeNode, previous instanceof ImmutableValueNode ? (ImmutableValueNode) previous : null);
+        }
+    }
+
+    Optional<TreeNode> self() {
+        return self;
+    }
+
+    static Optional<TreeNode> optionalOf(TreeNode treeNode) {
+        if (treeNode instanceof ImmutableTreeNode) {
+            return ((ImmutableTreeNode) treeNode).self;
+        } else {
+            return Optional.ofNullable(treeNode);
+        }
+    }
+
+    @Override
+    public boolean isHidden() {
+        return hidden;
+    }
+
+    @Override
+    public Optional<TreeNode> get(String path) {
+        if (path.isEmpty()) {
+            return self;
+        }
+        return get(Path.parse(path));
+    }
+
+    @Override
+    public void hide() {
+        throw new UnsupportedOperationException(UNMODIFIABLE_ERROR);
+    }
+
+    @Override
+    public TreeNode merge(TreeNode otherNode) {
+        throw new UnsupportedOperationException(UNMODIFIABLE_ERROR);
+    }
+
+    @Override
+    public TreeNode set(String path, TreeNode value) {
+        throw new UnsupportedOperationException(UNMODIFIABLE_ERROR);
+    }
+
+    @Override
+    public TreeNode remove(String path) {
+        throw new UnsupportedOperationException(UNMODIFIABLE_ERROR);
+    }
+
+    @Override
+    public TreeNode move(String sourcePath, String destinationPath) {
+        throw new UnsupportedOperationException(UNMODIFIABLE_ERROR);
+    }
+
+    @Override
+    public String toString() {
+        return toMappedString(null);
+    }
+}
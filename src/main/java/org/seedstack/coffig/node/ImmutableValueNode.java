@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.node;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.spi.ConfigurationMapper;
+
+final class ImmutableValueNode extends ImmutableTreeNode {
+    private final String value;
+    private final NamedNode[] namedNodes;
+    private final int hash;
+
+    private ImmutableValueNode(String value, boolean hidden) {
+        super(hidden);
+        this.value = value;
+        this.hash = Objects.hash(value);
+        this.namedNodes = value == null ? new NamedNode[0] : new NamedNode[]{new NamedNode("value", this)};
+    }
+
+    static ImmutableValueNode of(TreeNode treeNode, ImmutableValueNode previous) {
+        String value = treeNode.value();
+        if (previous != null && previous.isHidden() == treeNode.isHidden() && Objects.equals(previous.value, value)) {
+            return previous;
+        }
+        return new ImmutableValueNode(value, treeNode.isHidden());
+    }
+
+    @Override
+    public Type type() {
+        return Type.VALUE_NODE;
+    }
+
+    @Override
+    public String value() {
+        return value;
+    }
+
+    @Override
+    public Stream<TreeNode> nodes() {
+        return value == null ? Stream.empty() : Stream.of(this);
+    }
+
+    @Override
+    public Stream<NamedNode> namedNodes() {
+        return Stream.of(namedNodes);
+    }
+
+    @Override
+    public TreeNode node(String key) {
+        return this;
+    }
+
+    @Override
+    public Optional<TreeNode> get(Path path) {
+        if (path.isEmpty()) {
+            return self();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Stream<TreeNode> walk() {
+        return nodes();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return value == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof ImmutableValueNode) {
+            ImmutableValueNode other = (ImmutableValueNode) o;
+            return hash == other.hash && Objects.equals(value, other.value);
+        } else if (o instanceof TreeNode && ((TreeNode) o).type() == Type.VALUE_NODE) {
+            return Objects.equals(value, ((TreeNode) o).value());
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toMappedString(ConfigurationMapper mapper) {
+        if (isHidden()) {
+            return "\"" + AbstractTreeNode.HIDDEN_PLACEHOLDER + "\"";
+        } else {
+            String s;
+            if (mapper != null) {
+                s = (String) mapper.map(this, String.class);
+            } else {
+                s = value;
+            }
+
+            if (s == null) {
+                return "~";
+            } else {
+                return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+            }
+        }
+    }
+}
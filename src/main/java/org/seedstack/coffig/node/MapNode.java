@@ -72,17 +72,22 @@ public class MapNode extends AbstractTreeNode {
         if (path.isEmpty()) {
             return Optional.of(this);
         }
+        return get(Path.parse(path));
+    }
 
-        Path path2 = new Path(path);
-        if (path2.hasHead()) {
-            TreeNode child = children.get(path2.getHead());
+    @Override
+    public Optional<TreeNode> get(Path path) {
+        if (path.hasHead()) {
+            TreeNode child = children.get(path.getHead());
             if (child != null) {
-                if (path2.hasTail()) {
-                    return child.get(path2.getTail());
+                if (path.hasTail()) {
+                    return child.get(path.getTailPath());
                 } else {
                     return Optional.of(child);
                 }
             }
+        } else if (path.isEmpty()) {
+            return Optional.of(this);
         }
         return Optional.empty();
     }
@@ -115,10 +120,22 @@ public class MapNode extends AbstractTreeNode {
 
     @Override
     public TreeNode set(String name, TreeNode treeNode) {
-        Path path = new Path(name);
+        return setAt(Path.parse(name), treeNode);
+    }
+
+    /**
+     * Sets a node at the specified compiled path. Unlike {@link #set(String, TreeNode)}, the path is not parsed
+     * again at each level of the tree.
+     *
+     * @param path     the compiled path.
+     * @param treeNode the node to set.
+     * @return the node that has been set.
+     */
+    @Override
+    public TreeNode setAt(Path path, TreeNode treeNode) {
         if (path.hasTail()) {
             TreeNode nexNode = getOrCreateNode(path);
-            TreeNode finalNode = nexNode.set(path.getTail(), treeNode);
+            TreeNode finalNode = nexNode.setAt(path.getTailPath(), treeNode);
             children.put(path.getHead(), nexNode);
             return finalNode;
         } else {
@@ -129,7 +146,7 @@ public class MapNode extends AbstractTreeNode {
 
     @Override
     public TreeNode remove(String name) {
-        Path path = new Path(name);
+        Path path = Path.parse(name);
         if (path.hasTail()) {
             if (children.containsKey(path.getHead())) {
                 TreeNode treeNode = children.get(path.getHead());
@@ -148,11 +165,24 @@ public class MapNode extends AbstractTreeNode {
         }
     }
 
+    @Override
+    public MapNode copy() {
+        MapNode copy = new MapNode();
+        children.forEach((key, child) -> copy.children.put(key, child == null ? null : child.copy()));
+        if (isHidden()) {
+            copy.hide();
+        }
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
             return true;
         }
+        if (isOtherFamily(o)) {
+            return o.equals(this);
+        }
         if (o == null || !getClass().isAssignableFrom(o.getClass()) && !o.getClass().isAssignableFrom(getClass())) {
             return false;
         }
@@ -190,7 +220,7 @@ public class MapNode extends AbstractTreeNode {
         if (children.containsKey(path.getHead())) {
             treeNode = children.get(path.getHead());
         } else {
-            treeNode = new Path(path.getTail()).createNode();
+            treeNode = path.getTailPath().createNode();
         }
         return treeNode;
     }
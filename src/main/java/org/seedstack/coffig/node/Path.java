@@ -7,9 +7,8 @@
  */
 package org.seedstack.coffig.node;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ClockCache;
 
 /**
  * A path is a configuration tree path. It splits the path in two part.
@@ -53,74 +52,116 @@ import org.seedstack.coffig.TreeNode;
  *     path.index == 0
  *     path.isArray == true
  * </pre>
+ *
+ * <p>Paths are parsed once: the tail is itself available in compiled form through {@link #getTailPath()}, so a
+ * compiled path can be used for repeated lookups without any further parsing. Lookups by string parse the path each
+ * time; call sites that look up the same paths repeatedly should keep the compiled path or obtain it from
+ * {@link #of(String)}.</p>
  */
-class Path {
-    private static final Pattern PATH_REGEX = Pattern.compile("(?<!\\\\)" + Pattern.quote("."));
-    private static final Pattern SUBSCRIPTION_PATTERN = Pattern.compile("(.*)\\[(\\d+)\\]");
-
+public final class Path {
+    private static final int MAX_CACHED_PATHS = 4096;
+    private static final ClockCache<String, Path> CACHE = new ClockCache<>(MAX_CACHED_PATHS);
+    private final String path;
     private final String head;
     private final String tail;
+    private final Path tailPath;
     private final int index;
 
+    /**
+     * Returns the compiled form of the specified path string, for a call site that looks up the same few paths
+     * repeatedly. Compiled paths
+     * are kept in a bounded {@link ClockCache}, so when it is full the paths that were not read again since they were
+     * cached are evicted first.
+     *
+     * @param path the configuration path.
+     * @return the compiled path.
+     */
+    public static Path of(String path) {
+        return CACHE.computeIfAbsent(path, Path::new);
+    }
+
+    /**
+     * Parses the specified path string without caching it, for paths that are used only once like the keys of a
+     * configuration file.
+     *
+     * @param path the configuration path.
+     * @return the compiled path.
+     */
+    public static Path parse(String path) {
+        return new Path(path);
+    }
+
     /**
      * Constructs a path based on a string.
      *
      * @param path the configuration path
      */
     Path(String path) {
-        String[] splitPath = PATH_REGEX.split(path, 2);
-
-        if (splitPath[0].contains("[")) {
-            // Check for [ character for performance reasons
-            Matcher matcher = SUBSCRIPTION_PATTERN.matcher(splitPath[0]);
-            if (matcher.matches()) {
-                if (matcher.group(1).isEmpty()) {
-                    head = matcher.group(2);
-                    tail = splitPath.length > 1 ? splitPath[1] : null;
-                    index = Integer.parseInt(head);
-                    return;
-                } else {
-                    head = matcher.group(1).replace("\\", "");
-                    tail = String.format("[%s]", matcher.group(2)) + (splitPath.length > 1 ? "." + splitPath[1] : "");
-                    index = -1;
-                    return;
-                }
-            }
+        this.path = path;
+        int separator = findSeparator(path);
+        String first = separator == -1 ? path : path.substring(0, separator);
+        String rest = separator == -1 ? null : path.substring(separator + 1);
+
+        int subscript = findSubscript(first);
+        if (subscript == 0) {
+            head = first.substring(1, first.length() - 1);
+            tail = rest;
+            index = Integer.parseInt(head);
+        } else if (subscript > 0) {
+            head = unescape(first.substring(0, subscript));
+            tail = first.substring(subscript) + (rest != null ? "." + rest : "");
+            index = -1;
+        } else {
+            head = unescape(first);
+            tail = rest;
+            index = -1;
         }
+        tailPath = hasTail() ? new Path(tail) : null;
+    }
 
-        // no array subscription pattern
-        head = splitPath[0].replace("\\", "");
-        tail = splitPath.length > 1 ? splitPath[1] : null;
-        index = -1;
+    public boolean isEmpty() {
+        return path.isEmpty();
     }
 
-    boolean hasHead() {
+    public boolean hasHead() {
         return head != null && !head.isEmpty();
     }
 
-    String getHead() {
+    public String getHead() {
         if (!hasHead()) {
             throw new IllegalStateException("Path does not have a head");
         }
         return head;
     }
 
-    boolean hasTail() {
+    public boolean hasTail() {
         return tail != null && !tail.isEmpty();
     }
 
-    String getTail() {
+    public String getTail() {
         if (!hasTail()) {
             throw new IllegalStateException("Path does not have a tail");
         }
         return tail;
     }
 
-    boolean isArray() {
+    /**
+     * Returns the tail of this path in compiled form. Unlike {@link #getTail()}, no parsing occurs.
+     *
+     * @return the compiled tail.
+     */
+    public Path getTailPath() {
+        if (!hasTail()) {
+            throw new IllegalStateException("Path does not have a tail");
+        }
+        return tailPath;
+    }
+
+    public boolean isArray() {
         return index != -1;
     }
 
-    int getIndex() {
+    public int getIndex() {
         if (!isArray()) {
             throw new IllegalStateException("Path does not denote an array");
         }
@@ -137,4 +178,58 @@ class Path {
         return treeNode;
     }
 
-}
\ No newline at end of file
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return path.equals(((Path) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Finds the first dot that is not escaped by a backslash.
+     */
+    private static int findSeparator(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '.' && (i == 0 || path.charAt(i - 1) != '\\')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the position of a trailing array subscription (like in "key[5]") or returns -1 if there is none.
+     */
+    private static int findSubscript(String segment) {
+        int last = segment.length() - 1;
+        if (last < 2 || segment.charAt(last) != ']') {
+            return -1;
+        }
+        int i = last - 1;
+        while (i >= 0 && segment.charAt(i) >= '0' && segment.charAt(i) <= '9') {
+            i--;
+        }
+        if (i < 0 || i == last - 1 || segment.charAt(i) != '[') {
+            return -1;
+        }
+        return i;
+    }
+
+    private static String unescape(String segment) {
+        return segment.indexOf('\\') == -1 ? segment : segment.replace("\\", "");
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.node;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.seedstack.coffig.TreeNode;
+
+/**
+ * The structural differences between two configuration trees, computed in a single pass over both trees. Subtrees
+ * that are the same instance in both trees are not visited, so with trees sharing their unchanged subtrees (like
+ * the successive immutable trees of a configuration) the cost of the diff depends on the size of the change.
+ *
+ * <p>Changes are reported at the highest path where they occur: a map added to the tree is a single change, not one
+ * change per value of the map.</p>
+ */
+public final class TreeDiff {
+    private static final Path EMPTY_PATH = Path.of("");
+    private final Change root;
+    private final Map<String, ChangeType> changes = new LinkedHashMap<>();
+
+    private TreeDiff(TreeNode oldTree, TreeNode newTree) {
+        this.root = diff(oldTree, newTree, "");
+    }
+
+    /**
+     * Computes the differences between two trees.
+     *
+     * @param oldTree the previous tree.
+     * @param newTree the current tree.
+     * @return the differences.
+     */
+    public static TreeDiff compute(TreeNode oldTree, TreeNode newTree) {
+        return new TreeDiff(oldTree, newTree);
+    }
+
+    /**
+     * @return true if both trees are equal, false otherwise.
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Returns the changed paths, in the order they were found, with the type of each change.
+     *
+     * @return the changes by path.
+     */
+    public Map<String, ChangeType> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+
+    /**
+     * Checks if the node at the specified path differs between the two trees. This is equivalent to comparing the
+     * nodes at this path in both trees, without comparing anything outside of the changes. The path is resolved like
+     * {@link TreeNode#get(String)} does, so array items are only matched with the subscript syntax (like "users[0]"),
+     * not with a dotted index (like "users.0").
+     *
+     * @param path the path to check.
+     * @return true if the node at this path has been added, removed or modified, false otherwise.
+     */
+    public boolean affects(String path) {
+        return affects(Path.of(path));
+    }
+
+    /**
+     * Checks if the node at the specified compiled path differs between the two trees.
+     *
+     * @param path the path to check.
+     * @return true if the node at this path has been added, removed or modified, false otherwise.
+     * @see #affects(String)
+     */
+    public boolean affects(Path path) {
+        Change current = root;
+        Path remaining = path;
+        while (current != null) {
+            if (current.type != null) {
+                // The change is above or at the path: compare what is left of the path in the changed nodes
+                return remaining.isEmpty() || !Objects.equals(get(current.oldNode, remaining),
+                        get(current.newNode, remaining));
+            }
+            if (remaining.isEmpty()) {
+                // Some nodes below have changed
+                return true;
+            }
+            current = current.child(remaining);
+            remaining = remaining.hasTail() ? remaining.getTailPath() : EMPTY_PATH;
+        }
+        return false;
+    }
+
+    private Optional<TreeNode> get(TreeNode treeNode, Path path) {
+        return treeNode == null ? Optional.empty() : treeNode.get(path);
+    }
+
+    private Change diff(TreeNode oldNode, TreeNode newNode, String path) {
+        if (oldNode == newNode) {
+            return null;
+        } else if (oldNode == null) {
+            return record(new Change(ChangeType.ADDED, null, newNode), path);
+        } else if (newNode == null) {
+            return record(new Change(ChangeType.REMOVED, oldNode, null), path);
+        } else if (oldNode.type() != newNode.type()) {
+            return record(new Change(ChangeType.MODIFIED, oldNode, newNode), path);
+        }
+
+        switch (oldNode.type()) {
+            case MAP_NODE:
+                return diffMaps(oldNode, newNode, path);
+            case ARRAY_NODE:
+                return diffArrays(oldNode, newNode, path);
+            case VALUE_NODE:
+                if (Objects.equals(oldNode.value(), newNode.value())) {
+                    return null;
+                }
+                return record(new Change(ChangeType.MODIFIED, oldNode, newNode), path);
+            default:
+                throw new IllegalStateException("Unsupported node type " + oldNode.type());
+        }
+    }
+
+    private Change diffMaps(TreeNode oldNode, TreeNode newNode, String path) {
+        Map<String, TreeNode> oldChildren = new HashMap<>();
+        oldNode.namedNodes().forEach(namedNode -> oldChildren.put(namedNode.name(), namedNode.node()));
+        Change change = new Change(null, oldNode, newNode);
+        for (Iterator<NamedNode> it = newNode.namedNodes().iterator(); it.hasNext(); ) {
+            NamedNode namedNode = it.next();
+            String name = namedNode.name();
+            change.addChild(name, diff(oldChildren.remove(name), namedNode.node(), childPath(path, name)));
+        }
+        for (Map.Entry<String, TreeNode> removed : oldChildren.entrySet()) {
+            change.addChild(removed.getKey(), diff(removed.getValue(), null, childPath(path, removed.getKey())));
+        }
+        return change.children == null ? null : change;
+    }
+
+    private Change diffArrays(TreeNode oldNode, TreeNode newNode, String path) {
+        TreeNode[] oldItems = oldNode.nodes().toArray(TreeNode[]::new);
+        TreeNode[] newItems = newNode.nodes().toArray(TreeNode[]::new);
+        Change change = new Change(null, oldNode, newNode);
+        for (int i = 0; i < Math.max(oldItems.length, newItems.length); i++) {
+            change.addChild(String.valueOf(i), diff(
+                    i < oldItems.length ? oldItems[i] : null,
+                    i < newItems.length ? newItems[i] : null,
+                    path + "[" + i + "]"));
+        }
+        return change.children == null ? null : change;
+    }
+
+    private Change record(Change change, String path) {
+        changes.put(path, change.type);
+        return change;
+    }
+
+    private String childPath(String path, String name) {
+        String escapedName = name.replace(".", "\\.");
+        return path.isEmpty() ? escapedName : path + "." + escapedName;
+    }
+
+    @Override
+    public String toString() {
+        return changes.toString();
+    }
+
+    public enum ChangeType {
+        ADDED,
+        REMOVED,
+        MODIFIED
+    }
+
+    private static class Change {
+        private final ChangeType type;
+        private final TreeNode oldNode;
+        private final TreeNode newNode;
+        private Map<String, Change> children;
+
+        private Change(ChangeType type, TreeNode oldNode, TreeNode newNode) {
+            this.type = type;
+            this.oldNode = oldNode;
+            this.newNode = newNode;
+        }
+
+        private void addChild(String key, Change child) {
+            if (child != null) {
+                if (children == null) {
+                    children = new HashMap<>();
+                }
+                children.put(key, child);
+            }
+        }
+
+        private Change child(Path path) {
+            if (children == null) {
+                return null;
+            }
+            // Follow the path the same way tree nodes do: by name in maps and by index in arrays
+            if (oldNode.type() == TreeNode.Type.ARRAY_NODE) {
+                return path.isArray() ? children.get(String.valueOf(path.getIndex())) : null;
+            } else {
+                return path.hasHead() ? children.get(path.getHead()) : null;
+            }
+        }
+    }
+}
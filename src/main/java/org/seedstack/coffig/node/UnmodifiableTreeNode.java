@@ -79,6 +79,11 @@ public class UnmodifiableTreeNode implements TreeNode {
         return treeNode.get(path).map(UnmodifiableTreeNode::of);
     }
 
+    @Override
+    public Optional<TreeNode> get(Path path) {
+        return treeNode.get(path).map(UnmodifiableTreeNode::of);
+    }
+
     @Override
     public Stream<TreeNode> walk() {
         return treeNode.walk().map(UnmodifiableTreeNode::of);
@@ -69,6 +69,14 @@ public class ValueNode extends AbstractTreeNode {
         return Optional.empty();
     }
 
+    @Override
+    public Optional<TreeNode> get(Path path) {
+        if (path.isEmpty()) {
+            return Optional.of(this);
+        }
+        return Optional.empty();
+    }
+
     @Override
     public Stream<TreeNode> walk() {
         if (value == null) {
@@ -102,11 +110,23 @@ public class ValueNode extends AbstractTreeNode {
                 .put("reason", "cannot remove children from value node");
     }
 
+    @Override
+    public ValueNode copy() {
+        ValueNode copy = new ValueNode(value);
+        if (isHidden()) {
+            copy.hide();
+        }
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
             return true;
         }
+        if (isOtherFamily(o)) {
+            return o.equals(this);
+        }
         if (o == null || !getClass().isAssignableFrom(o.getClass()) && !o.getClass().isAssignableFrom(getClass())) {
             return false;
         }
@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ConfigurationErrorCode;
+import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.node.ArrayNode;
+import org.seedstack.coffig.node.MapNode;
+import org.seedstack.coffig.node.ValueNode;
+
+/**
+ * The binary format of compiled configuration. It is made of a header, a table of the distinct strings of the
+ * tree, a table of nodes and a table of map and array entries, all integers being big-endian:
+ *
+ * <pre>
+ *     header:  magic ("CFGS"), version, string count, node count, entry count
+ *     strings: (string count + 1) offsets in the string data, string data length, UTF-8 string data
+ *     nodes:   node count * (type, first, second), the root node being the first node
+ *              value: type 0, string index or -1 for null, unused
+ *              map:   type 1, index of its first entry, entry count
+ *              array: type 2, index of its first entry, entry count
+ *     entries: entry count * (name string index or -1 for array items, node index)
+ * </pre>
+ *
+ * <p>Strings are decoded once when first used, so identical strings of the tree share the same instance.</p>
+ */
+final class CompiledConfigFormat {
+    private static final int MAGIC = 0x43464753;
+    private static final int VERSION = 1;
+    private static final int VALUE = 0;
+    private static final int MAP = 1;
+    private static final int ARRAY = 2;
+    private static final int HEADER_SIZE = 20;
+    private static final int NODE_SIZE = 12;
+    private static final int ENTRY_SIZE = 8;
+
+    private CompiledConfigFormat() {
+        // no instantiation allowed
+    }
+
+    static void write(TreeNode tree, OutputStream outputStream) throws IOException {
+        if (tree.type() != TreeNode.Type.MAP_NODE) {
+            throw new IllegalArgumentException("The root of compiled configuration must be a map");
+        }
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        List<TreeNode> nodes = new ArrayList<>();
+        List<int[]> nodeFields = new ArrayList<>();
+        List<int[]> entries = new ArrayList<>();
+
+        // Breadth-first traversal so the entries of each map or array are contiguous
+        nodes.add(tree);
+        for (int i = 0; i < nodes.size(); i++) {
+            TreeNode node = nodes.get(i);
+            switch (node.type()) {
+                case VALUE_NODE:
+                    String value = node.value();
+                    nodeFields.add(new int[]{VALUE, value == null ? -1 : stringIndex(strings, value), 0});
+                    break;
+                case MAP_NODE:
+                    int firstMapEntry = entries.size();
+                    node.namedNodes().forEach(namedNode -> {
+                        entries.add(new int[]{stringIndex(strings, namedNode.name()), nodes.size()});
+                        nodes.add(namedNode.node());
+                    });
+                    nodeFields.add(new int[]{MAP, firstMapEntry, entries.size() - firstMapEntry});
+                    break;
+                case ARRAY_NODE:
+                    int firstArrayEntry = entries.size();
+                    node.nodes().forEach(item -> {
+                        entries.add(new int[]{-1, nodes.size()});
+                        nodes.add(item);
+                    });
+                    nodeFields.add(new int[]{ARRAY, firstArrayEntry, entries.size() - firstArrayEntry});
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported node type " + node.type());
+            }
+        }
+
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[strings.size() + 1];
+        int stringCount = 0;
+        for (String string : strings.keySet()) {
+            stringOffsets[stringCount++] = stringData.size();
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            stringData.write(bytes, 0, bytes.length);
+        }
+        stringOffsets[stringCount] = stringData.size();
+
+        DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeInt(VERSION);
+        dataOutputStream.writeInt(strings.size());
+        dataOutputStream.writeInt(nodeFields.size());
+        dataOutputStream.writeInt(entries.size());
+        for (int stringOffset : stringOffsets) {
+            dataOutputStream.writeInt(stringOffset);
+        }
+        dataOutputStream.writeInt(stringData.size());
+        stringData.writeTo(dataOutputStream);
+        for (int[] fields : nodeFields) {
+            for (int field : fields) {
+                dataOutputStream.writeInt(field);
+            }
+        }
+        for (int[] entry : entries) {
+            dataOutputStream.writeInt(entry[0]);
+            dataOutputStream.writeInt(entry[1]);
+        }
+        dataOutputStream.flush();
+    }
+
+    private static int stringIndex(Map<String, Integer> strings, String string) {
+        return strings.computeIfAbsent(string, key -> strings.size());
+    }
+
+    static MapNode read(ByteBuffer buffer) {
+        try {
+            return new Reader(buffer).read();
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            throw ConfigurationException.wrap(e, ConfigurationErrorCode.INVALID_COMPILED_CONFIGURATION)
+                    .put("reason", "truncated or corrupted data");
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private final int stringCount;
+        private final int nodeCount;
+        private final int entryCount;
+        private final int stringOffsetsStart;
+        private final int stringDataStart;
+        private final int stringDataLength;
+        private final int nodesStart;
+        private final int entriesStart;
+        private final String[] strings;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            int base = buffer.position();
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt(base) != MAGIC) {
+                throw invalid("not compiled configuration");
+            }
+            int version = buffer.getInt(base + 4);
+            if (version != VERSION) {
+                throw invalid("unsupported version " + version);
+            }
+            this.stringCount = buffer.getInt(base + 8);
+            this.nodeCount = buffer.getInt(base + 12);
+            this.entryCount = buffer.getInt(base + 16);
+            // Every node but the root is the target of exactly one entry
+            if (stringCount < 0 || entryCount < 0 || nodeCount != entryCount + 1L) {
+                throw invalid("invalid table sizes");
+            }
+            this.stringOffsetsStart = base + HEADER_SIZE;
+            long stringDataLengthPosition = stringOffsetsStart + (stringCount + 1L) * 4;
+            if (stringDataLengthPosition + 4 > buffer.limit()) {
+                throw invalid("truncated data");
+            }
+            this.stringDataLength = buffer.getInt((int) stringDataLengthPosition);
+            if (stringDataLength < 0) {
+                throw invalid("invalid string data length");
+            }
+            long nodesPosition = stringDataLengthPosition + 4 + stringDataLength;
+            long entriesPosition = nodesPosition + (long) nodeCount * NODE_SIZE;
+            if (entriesPosition + (long) entryCount * ENTRY_SIZE > buffer.limit()) {
+                throw invalid("truncated data");
+            }
+            this.stringDataStart = (int) stringDataLengthPosition + 4;
+            this.nodesStart = (int) nodesPosition;
+            this.entriesStart = (int) entriesPosition;
+            this.strings = new String[stringCount];
+        }
+
+        /**
+         * Checks that the tables describe the tree as written, then builds it from the last node to the first one so
+         * children are always built before their parent, without recursion.
+         */
+        private MapNode read() {
+            if (buffer.getInt(nodesStart) != MAP) {
+                throw invalid("the root node is not a map");
+            }
+            checkStructure();
+            TreeNode[] nodes = new TreeNode[nodeCount];
+            for (int index = nodeCount - 1; index >= 0; index--) {
+                nodes[index] = buildNode(index, nodes);
+            }
+            return (MapNode) nodes[0];
+        }
+
+        /**
+         * Nodes are written breadth-first, so the entries of successive maps and arrays are contiguous, entry i
+         * targets node i + 1 and the entries of a node only target nodes written after it. Enforcing this excludes
+         * shared nodes and cycles.
+         */
+        private void checkStructure() {
+            int expectedFirst = 0;
+            for (int index = 0; index < nodeCount; index++) {
+                int position = nodesStart + index * NODE_SIZE;
+                int type = buffer.getInt(position);
+                if (type == MAP || type == ARRAY) {
+                    int first = buffer.getInt(position + 4);
+                    int count = buffer.getInt(position + 8);
+                    if (first != expectedFirst || first < index || count < 0 || (long) first + count > entryCount) {
+                        throw invalid("invalid entries of node " + index);
+                    }
+                    expectedFirst += count;
+                } else if (type != VALUE) {
+                    throw invalid("invalid type of node " + index);
+                }
+            }
+            if (expectedFirst != entryCount) {
+                throw invalid("invalid entry count");
+            }
+            for (int entry = 0; entry < entryCount; entry++) {
+                if (buffer.getInt(entriesStart + entry * ENTRY_SIZE + 4) != entry + 1) {
+                    throw invalid("invalid node reference of entry " + entry);
+                }
+            }
+        }
+
+        private TreeNode buildNode(int index, TreeNode[] nodes) {
+            int position = nodesStart + index * NODE_SIZE;
+            int type = buffer.getInt(position);
+            if (type == VALUE) {
+                return new ValueNode(string(buffer.getInt(position + 4)));
+            }
+            int first = buffer.getInt(position + 4);
+            int count = buffer.getInt(position + 8);
+            if (type == MAP) {
+                Map<String, TreeNode> children = new HashMap<>();
+                for (int i = first; i < first + count; i++) {
+                    int name = buffer.getInt(entriesStart + i * ENTRY_SIZE);
+                    if (name == -1) {
+                        throw invalid("missing name of entry " + i);
+                    }
+                    children.put(string(name), nodes[i + 1]);
+                }
+                return new MapNode(children);
+            } else {
+                List<TreeNode> items = new ArrayList<>(count);
+                for (int i = first; i < first + count; i++) {
+                    items.add(nodes[i + 1]);
+                }
+                return new ArrayNode(items);
+            }
+        }
+
+        private String string(int index) {
+            if (index == -1) {
+                return null;
+            } else if (index < 0 || index >= stringCount) {
+                throw invalid("invalid string reference " + index);
+            }
+            String string = strings[index];
+            if (string == null) {
+                int start = buffer.getInt(stringOffsetsStart + index * 4);
+                int end = buffer.getInt(stringOffsetsStart + (index + 1) * 4);
+                // Offsets come from the file so they are checked before allocating anything
+                if (start < 0 || start > end || end > stringDataLength) {
+                    throw invalid("invalid offsets of string " + index);
+                }
+                byte[] bytes = new byte[end - start];
+                ByteBuffer slice = buffer.duplicate();
+                slice.position(stringDataStart + start);
+                slice.get(bytes);
+                string = new String(bytes, StandardCharsets.UTF_8);
+                strings[index] = string;
+            }
+            return string;
+        }
+
+        private ConfigurationException invalid(String reason) {
+            return (ConfigurationException) ConfigurationException
+                    .createNew(ConfigurationErrorCode.INVALID_COMPILED_CONFIGURATION)
+                    .put("reason", reason);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.internal.ConfigurationErrorCode;
+import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.node.MapNode;
+import org.seedstack.coffig.spi.ConfigurationProvider;
+import org.seedstack.coffig.spi.ConfigurationWatcher;
+import org.seedstack.coffig.spi.ModificationCounter;
+import org.seedstack.coffig.watcher.FileConfigurationWatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Provides configuration from compiled files, which hold trees precompiled from other sources with
+ * {@link ConfigCompiler}. Reading compiled configuration requires no parsing: large files are memory-mapped and the
+ * tree is built directly from their string and node tables.
+ */
+public class CompiledConfigProvider implements ConfigurationProvider, FileConfigurationWatcher.Listener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompiledConfigProvider.class);
+    private final List<URL> sources = new ArrayList<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final FileConfigurationWatcher fileWatcher = FileConfigurationWatcher.getInstance();
+
+    @Override
+    public synchronized MapNode provide() {
+        MapNode mapNode = new MapNode();
+        for (URL url : sources) {
+            LOGGER.debug("Reading compiled configuration from " + url.toExternalForm());
+            // Compiled configuration is not cached since reading them again is cheap and gives a tree that can be merged as is
+            mapNode.merge(buildTreeFromUrl(url));
+        }
+        dirty.set(false);
+        return mapNode;
+    }
+
+    @Override
+    public synchronized CompiledConfigProvider fork() {
+        CompiledConfigProvider fork = new CompiledConfigProvider();
+        for (URL source : sources) {
+            fork.addSource(source);
+        }
+        return fork;
+    }
+
+    @Override
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    @Override
+    public boolean isDirtyTracked() {
+        return true;
+    }
+
+    @Override
+    public Set<ConfigurationWatcher> watchers() {
+        HashSet<ConfigurationWatcher> configurationWatchers = new HashSet<>();
+        configurationWatchers.add(fileWatcher);
+        return configurationWatchers;
+    }
+
+    public synchronized CompiledConfigProvider addSource(URL url) {
+        if (url == null) {
+            throw new NullPointerException("Source URL cannot be null");
+        }
+        sources.add(url);
+        if ("file".equalsIgnoreCase(url.getProtocol())) {
+            try {
+                fileWatcher.watchFile(Paths.get(url.toURI()), this);
+            } catch (Exception e) {
+                LOGGER.warn("Unable to watch source: {}", url.toExternalForm(), e);
+            }
+        }
+        dirty.set(true);
+        ModificationCounter.increment();
+        return this;
+    }
+
+    @Override
+    public void fileChanged(Path path) {
+        LOGGER.debug("Compiled configuration has changed: " + path);
+        dirty.set(true);
+        ModificationCounter.increment();
+    }
+
+    public static MapNode buildTreeFromUrl(URL url) {
+        try {
+            return CompiledConfigFormat.read(SourceReader.read(url));
+        } catch (IOException e) {
+            throw ConfigurationException.wrap(e, ConfigurationErrorCode.FAILED_TO_READ_CONFIGURATION)
+                    .put("url", url.toExternalForm());
+        }
+    }
+
+    /**
+     * Writes the compiled form of a configuration tree.
+     *
+     * @param tree         the tree, which must be a map.
+     * @param outputStream the stream to write the compiled configuration to.
+     * @throws IOException if the compiled configuration cannot be written.
+     */
+    public static void writeCompiledConfig(TreeNode tree, OutputStream outputStream) throws IOException {
+        CompiledConfigFormat.write(tree, outputStream);
+    }
+}
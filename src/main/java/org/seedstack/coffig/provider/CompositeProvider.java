@@ -7,39 +7,167 @@
  */
 package org.seedstack.coffig.provider;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.seedstack.coffig.TreeNode;
 import org.seedstack.coffig.internal.ConfigurationErrorCode;
 import org.seedstack.coffig.internal.ConfigurationException;
 import org.seedstack.coffig.node.MapNode;
 import org.seedstack.coffig.spi.BaseComposite;
 import org.seedstack.coffig.spi.ConfigurationProvider;
 
+/**
+ * Merges the configuration of several providers. The last tree provided by each provider is kept so that subsequent
+ * calls to {@link #provide()} only call the providers that are dirty and merge their result with the trees of the
+ * other providers, in the order of their {@link ConfigurationProvider#precedence()}. Calling {@link #invalidate()}
+ * discards the kept trees.
+ *
+ * <p>When several providers must be called, they are called concurrently using the executor specified at construction
+ * (see {@link ProviderExecutors}), the calling thread taking one of the tasks. By default, the executor shared by all
+ * configurations of the process is used. Composite providers nested in a provider task run their own tasks in that
+ * thread, so a bounded executor cannot be exhausted by tasks waiting for each other.</p>
+ *
+ * <p>Whatever the number of providers called, a failure is thrown as a {@link ConfigurationException} with the
+ * {@link ConfigurationErrorCode#ERROR_OCCURRED_DURING_COMPOSITE_PROVIDE} error code.</p>
+ */
 public class CompositeProvider extends BaseComposite<ConfigurationProvider> implements ConfigurationProvider {
+    private static final ThreadLocal<Boolean> IN_PROVIDER_TASK = new ThreadLocal<>();
+    private final Executor executor;
+    private final MapNode[] layers;
+
     public CompositeProvider(ConfigurationProvider... items) {
+        this(ProviderExecutors.shared(), items);
+    }
+
+    public CompositeProvider(Executor executor, ConfigurationProvider... items) {
         super(ConfigurationProvider.class, items);
+        if (executor == null) {
+            throw new NullPointerException("Provider executor cannot be null");
+        }
+        this.executor = executor;
+        this.layers = new MapNode[items.length];
+    }
+
+    @Override
+    public synchronized void invalidate() {
+        super.invalidate();
+        Arrays.fill(layers, null);
     }
 
     @Override
     protected CompositeProvider doFork(ConfigurationProvider... items) {
-        return new CompositeProvider(items);
+        return new CompositeProvider(executor, items);
     }
 
     @Override
-    public MapNode provide() {
-        ForkJoinPool forkJoinPool = new ForkJoinPool();
+    public synchronized MapNode provide() {
+        int[] staleLayers = IntStream.range(0, items.length)
+                .filter(i -> layers[i] == null || items[i].isDirty())
+                .toArray();
+        execute(staleLayers.length, i -> layers[staleLayers[i]] = items[staleLayers[i]].provide());
+        return merge();
+    }
+
+    /**
+     * Merges the layers from the lowest to the highest precedence. Each top-level subtree only depends on the
+     * subtrees of the same name in the other layers, so top-level subtrees are merged concurrently, each of them in
+     * layer order.
+     */
+    private MapNode merge() {
+        Map<String, List<TreeNode>> subtrees = new LinkedHashMap<>();
+        IntStream.range(0, items.length)
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> items[i].precedence()))
+                .forEach(i -> layers[i].namedNodes().forEach(namedNode -> subtrees
+                        .computeIfAbsent(namedNode.name(), key -> new ArrayList<>())
+                        .add(namedNode.node())));
+
+        String[] keys = subtrees.keySet().toArray(new String[0]);
+        TreeNode[] mergedSubtrees = new TreeNode[keys.length];
+        int chunkCount = Math.min(keys.length, Runtime.getRuntime().availableProcessors());
+        execute(chunkCount, chunk -> {
+            for (int i = chunk; i < keys.length; i += chunkCount) {
+                mergedSubtrees[i] = mergeSubtrees(subtrees.get(keys[i]));
+            }
+        });
+
+        Map<String, TreeNode> children = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            children.put(keys[i], mergedSubtrees[i]);
+        }
+        return new MapNode(children);
+    }
+
+    private TreeNode mergeSubtrees(List<TreeNode> subtrees) {
+        TreeNode result = null;
+        for (TreeNode subtree : subtrees) {
+            // Merging alters the trees involved so it is done on copies to keep the layers intact
+            TreeNode copy = subtree == null ? null : subtree.copy();
+            result = result == null || copy == null ? copy : result.merge(copy);
+        }
+        return result;
+    }
+
+    private void execute(int count, IntConsumer task) {
+        if (count <= 1 || ProviderExecutors.isSequential(executor) || IN_PROVIDER_TASK.get() != null) {
+            try {
+                for (int i = 0; i < count; i++) {
+                    task.accept(i);
+                }
+            } catch (RuntimeException e) {
+                throw providerError(e);
+            }
+        } else {
+            CompletableFuture<?>[] futures = IntStream.range(1, count)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> runProviderTask(task, i), executor))
+                    .toArray(CompletableFuture[]::new);
+            Throwable failure = null;
+            try {
+                task.accept(0);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            // Other tasks are always awaited so none of them is still running when this method returns
+            try {
+                CompletableFuture.allOf(futures).join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw providerError(failure);
+            }
+        }
+    }
+
+    private static void runProviderTask(IntConsumer task, int i) {
+        IN_PROVIDER_TASK.set(Boolean.TRUE);
         try {
-            return forkJoinPool.submit(() -> Arrays.stream(items)
-                    .parallel()
-                    .map(ConfigurationProvider::provide)
-                    .reduce((conf1, conf2) -> (MapNode) conf1.merge(conf2))
-                    .orElse(new MapNode())
-            ).get();
-        } catch (InterruptedException | ExecutionException e) {
-            throw ConfigurationException.wrap(e, ConfigurationErrorCode.ERROR_OCCURRED_DURING_COMPOSITE_PROVIDE);
+            task.accept(i);
         } finally {
-            forkJoinPool.shutdown();
+            IN_PROVIDER_TASK.remove();
+        }
+    }
+
+    private static ConfigurationException providerError(Throwable t) {
+        ConfigurationErrorCode errorCode = ConfigurationErrorCode.ERROR_OCCURRED_DURING_COMPOSITE_PROVIDE;
+        if (t instanceof ConfigurationException && ((ConfigurationException) t).getErrorCode() == errorCode) {
+            // Already thrown by a nested composite provider
+            return (ConfigurationException) t;
         }
+        return ConfigurationException.wrap(t, errorCode);
     }
 }
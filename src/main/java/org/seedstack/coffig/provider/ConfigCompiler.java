@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.seedstack.coffig.node.MapNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles configuration sources into a binary file that can be loaded by {@link CompiledConfigProvider}, typically at
+ * build time. YAML and JSON sources (".yaml", ".yml" and ".json" files) require Jackson, properties sources
+ * (".properties" files) don't. Sources are merged in the specified order, later sources overriding earlier ones.
+ *
+ * <p>It can be run from the command line with the output file followed by the source files:</p>
+ * <pre>
+ *     java org.seedstack.coffig.provider.ConfigCompiler config.bin application.yaml application.properties
+ * </pre>
+ */
+public class ConfigCompiler {
+    private final List<URL> sources = new ArrayList<>();
+
+    public ConfigCompiler addSource(URL url) {
+        if (url == null) {
+            throw new NullPointerException("Source URL cannot be null");
+        }
+        sources.add(url);
+        return this;
+    }
+
+    /**
+     * Reads and merges the sources.
+     *
+     * @return the merged tree.
+     */
+    public MapNode buildTree() {
+        ObjectMapper jacksonMapper = null;
+        MapNode mapNode = new MapNode();
+        for (URL url : sources) {
+            if (url.getPath().toLowerCase(Locale.ENGLISH).endsWith(".properties")) {
+                mapNode.merge(PropertiesProvider.buildTreeFromUrl(url));
+            } else {
+                if (jacksonMapper == null) {
+                    jacksonMapper = new ObjectMapper(new YAMLFactory());
+                }
+                mapNode.merge(JacksonProvider.buildTreeFromUrl(jacksonMapper, url));
+            }
+        }
+        return mapNode;
+    }
+
+    /**
+     * Writes the compiled form of the merged sources.
+     *
+     * @param outputStream the stream to write the compiled configuration to.
+     * @throws IOException if the compiled configuration cannot be written.
+     */
+    public void compile(OutputStream outputStream) throws IOException {
+        CompiledConfigProvider.writeCompiledConfig(buildTree(), outputStream);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ConfigCompiler <output file> <source file>...");
+            System.exit(1);
+        }
+        ConfigCompiler configCompiler = new ConfigCompiler();
+        for (int i = 1; i < args.length; i++) {
+            configCompiler.addSource(Paths.get(args[i]).toUri().toURL());
+        }
+        Path outputFile = Paths.get(args[0]);
+        try (OutputStream outputStream = Files.newOutputStream(outputFile)) {
+            configCompiler.compile(outputStream);
+        }
+        System.out.println("Compiled configuration written to " + outputFile);
+    }
+}
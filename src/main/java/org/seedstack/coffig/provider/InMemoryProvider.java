@@ -19,6 +19,7 @@ import org.seedstack.coffig.node.ArrayNode;
 import org.seedstack.coffig.node.MapNode;
 import org.seedstack.coffig.node.ValueNode;
 import org.seedstack.coffig.spi.ConfigurationProvider;
+import org.seedstack.coffig.spi.ModificationCounter;
 
 public class InMemoryProvider implements ConfigurationProvider {
     private final ConcurrentMap<String, Object> data = new ConcurrentHashMap<>();
@@ -48,36 +49,42 @@ public class InMemoryProvider implements ConfigurationProvider {
     public InMemoryProvider put(String key, String value) {
         data.put(key, value);
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
     public InMemoryProvider put(String key, String... values) {
         data.put(key, values);
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
     public InMemoryProvider put(String key, Collection<String> values) {
         data.put(key, new ArrayList<>(values));
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
     public InMemoryProvider remove(String key) {
         data.remove(key);
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
     public InMemoryProvider putAll(Map<? extends String, ?> m) {
         data.putAll(m);
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
     public InMemoryProvider clear() {
         data.clear();
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
@@ -86,6 +93,11 @@ public class InMemoryProvider implements ConfigurationProvider {
         return dirty.get();
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return true;
+    }
+
     @Override
     public ConfigurationProvider fork() {
         InMemoryProvider inMemoryProvider = new InMemoryProvider();
@@ -7,6 +7,8 @@
  */
 package org.seedstack.coffig.provider;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
@@ -15,10 +17,10 @@ import org.seedstack.coffig.internal.ConfigurationErrorCode;
 import org.seedstack.coffig.internal.ConfigurationException;
 import org.seedstack.coffig.node.ArrayNode;
 import org.seedstack.coffig.node.MapNode;
-import org.seedstack.coffig.node.NamedNode;
 import org.seedstack.coffig.node.ValueNode;
 import org.seedstack.coffig.spi.ConfigurationProvider;
 import org.seedstack.coffig.spi.ConfigurationWatcher;
+import org.seedstack.coffig.spi.ModificationCounter;
 import org.seedstack.coffig.watcher.FileConfigurationWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,28 +30,32 @@ import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class JacksonProvider implements ConfigurationProvider, FileConfigurationWatcher.Listener {
     private static final Logger LOGGER = LoggerFactory.getLogger(JacksonProvider.class);
     private final List<URL> sources = new ArrayList<>();
+    private static final ConcurrentMap<String, MapNode> ARCHIVE_TREES = new ConcurrentHashMap<>();
     private final AtomicBoolean dirty = new AtomicBoolean(true);
     private final ObjectMapper jacksonMapper = new ObjectMapper(new YAMLFactory());
     private final FileConfigurationWatcher fileWatcher = FileConfigurationWatcher.getInstance();
+    private final SourceCache sourceCache = new SourceCache(url -> buildTreeFromUrl(jacksonMapper, url), ARCHIVE_TREES);
 
     @Override
     public synchronized MapNode provide() {
-        MapNode mapNode = sources
-                .stream()
-                .peek(url -> LOGGER.debug("Reading configuration from " + url.toExternalForm()))
-                .map(url -> buildTreeFromUrl(jacksonMapper, url))
-                .reduce((conf1, conf2) -> (MapNode) conf1.merge(conf2))
-                .orElse(new MapNode());
+        MapNode mapNode = new MapNode();
+        for (URL url : sources) {
+            LOGGER.debug("Reading configuration from " + url.toExternalForm());
+            // Cached trees are copied as merging alters them
+            mapNode.merge(sourceCache.get(url).copy());
+        }
         dirty.set(false);
         return mapNode;
     }
@@ -68,6 +74,11 @@ public class JacksonProvider implements ConfigurationProvider, FileConfiguration
         return dirty.get();
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return true;
+    }
+
     @Override
     public Set<ConfigurationWatcher> watchers() {
         HashSet<ConfigurationWatcher> configurationWatchers = new HashSet<>();
@@ -88,18 +99,21 @@ public class JacksonProvider implements ConfigurationProvider, FileConfiguration
             }
         }
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
     @Override
     public void fileChanged(Path path) {
         LOGGER.debug("Configuration file has changed: " + path);
+        sourceCache.evict(path);
         dirty.set(true);
+        ModificationCounter.increment();
     }
 
     public static MapNode buildTreeFromUrl(ObjectMapper jacksonMapper, URL url) {
-        try {
-            return buildTreeFromFields(jacksonMapper.readTree(url));
+        try (JsonParser parser = jacksonMapper.getFactory().createParser(url)) {
+            return buildTreeFromParser(jacksonMapper, parser);
         } catch (IOException e) {
             throw ConfigurationException.wrap(e, ConfigurationErrorCode.FAILED_TO_READ_CONFIGURATION)
                     .put("url", url.toExternalForm());
@@ -107,75 +121,78 @@ public class JacksonProvider implements ConfigurationProvider, FileConfiguration
     }
 
     public static MapNode buildTreeFromString(ObjectMapper jacksonMapper, String value) {
-        try {
-            return buildTreeFromFields(jacksonMapper.readTree(value));
+        try (JsonParser parser = jacksonMapper.getFactory().createParser(value)) {
+            return buildTreeFromParser(jacksonMapper, parser);
         } catch (IOException e) {
             throw ConfigurationException.wrap(e, ConfigurationErrorCode.FAILED_TO_READ_CONFIGURATION)
                     .put("url", "<string>");
         }
     }
 
-    private static MapNode buildTreeFromFields(JsonNode node) {
-        List<NamedNode> namedNodes = new ArrayList<>();
-        if (node != null) {
-            node.fields().forEachRemaining(entry -> {
-                String name = entry.getKey();
-                TreeNode treeNode = buildTreeFromField(entry.getValue());
-                namedNodes.add(new NamedNode(name, treeNode));
-            });
+    /**
+     * Builds the tree directly from the token stream of the parser, without building the intermediate Jackson tree.
+     * Only the fields of a root object are kept.
+     */
+    private static MapNode buildTreeFromParser(ObjectMapper jacksonMapper, JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            return buildMapNode(jacksonMapper, parser);
+        } else if (token != null) {
+            parser.skipChildren();
         }
-        return new MapNode(namedNodes.toArray(new NamedNode[0]));
+        return new MapNode();
     }
 
-    private static TreeNode buildTreeFromField(JsonNode jsonNode) {
-        NodeBuilder nodeBuilder;
-        if (jsonNode.isValueNode()) {
-            nodeBuilder = new ValueNodeBuilder();
-        } else if (jsonNode.isArray()) {
-            nodeBuilder = new ArrayNodeBuilder();
-        } else {
-            nodeBuilder = new ObjectNodeBuilder();
+    private static TreeNode buildTreeNode(ObjectMapper jacksonMapper, JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                return buildMapNode(jacksonMapper, parser);
+            case START_ARRAY:
+                return buildArrayNode(jacksonMapper, parser);
+            case VALUE_STRING:
+                return new ValueNode(parser.getText());
+            case VALUE_TRUE:
+                return new ValueNode("true");
+            case VALUE_FALSE:
+                return new ValueNode("false");
+            case VALUE_NULL:
+                return new ValueNode((String) null);
+            case VALUE_NUMBER_INT:
+                JsonParser.NumberType numberType = parser.getNumberType();
+                if (numberType == JsonParser.NumberType.INT || numberType == JsonParser.NumberType.LONG) {
+                    return new ValueNode(String.valueOf(parser.getLongValue()));
+                }
+                return readScalar(jacksonMapper, parser);
+            default:
+                return readScalar(jacksonMapper, parser);
         }
-        return nodeBuilder.build(jsonNode);
     }
 
-    private interface NodeBuilder {
-        TreeNode build(JsonNode jsonNode);
+    /**
+     * Converts the current value to text exactly as Jackson nodes do. Only used for rare values (floating-point
+     * numbers, big integers, embedded objects).
+     */
+    private static ValueNode readScalar(ObjectMapper jacksonMapper, JsonParser parser) throws IOException {
+        JsonNode jsonNode = jacksonMapper.readTree(parser);
+        return new ValueNode(jsonNode == null ? null : jsonNode.asText(null));
     }
 
-    private static class ValueNodeBuilder implements NodeBuilder {
-        @Override
-        public TreeNode build(JsonNode jsonNode) {
-            return new ValueNode(jsonNode.asText(null));
+    private static MapNode buildMapNode(ObjectMapper jacksonMapper, JsonParser parser) throws IOException {
+        Map<String, TreeNode> children = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            children.put(name, buildTreeNode(jacksonMapper, parser));
         }
+        return new MapNode(children);
     }
 
-    private static class ArrayNodeBuilder implements NodeBuilder {
-        @Override
-        public TreeNode build(JsonNode jsonNode) {
-            List<TreeNode> treeNodes = new ArrayList<>();
-            for (int i = 0; i < jsonNode.size(); i++) {
-                TreeNode treeNode = buildTreeFromField(jsonNode.get(i));
-                treeNodes.add(treeNode);
-            }
-            TreeNode[] nodes = treeNodes.toArray(new TreeNode[0]);
-            return new ArrayNode(nodes);
-        }
-    }
-
-    private static class ObjectNodeBuilder implements NodeBuilder {
-        @Override
-        public TreeNode build(JsonNode jsonNode) {
-            List<NamedNode> namedNodes = new ArrayList<>();
-            Iterator<Map.Entry<String, JsonNode>> fields = jsonNode.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String fieldName = entry.getKey();
-                TreeNode treeNode = buildTreeFromField(entry.getValue());
-                namedNodes.add(new NamedNode(fieldName, treeNode));
-            }
-            NamedNode[] nodes = namedNodes.toArray(new NamedNode[0]);
-            return new MapNode(nodes);
+    private static ArrayNode buildArrayNode(ObjectMapper jacksonMapper, JsonParser parser) throws IOException {
+        List<TreeNode> children = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            children.add(buildTreeNode(jacksonMapper, parser));
         }
+        return new ArrayNode(children);
     }
 }
@@ -28,6 +28,11 @@ public class PrefixProvider<T extends ConfigurationProvider> implements Configur
         return result;
     }
 
+    @Override
+    public int precedence() {
+        return configurationProvider.precedence();
+    }
+
     @Override
     public void initialize(Coffig coffig) {
         configurationProvider.initialize(coffig);
@@ -43,6 +48,11 @@ public class PrefixProvider<T extends ConfigurationProvider> implements Configur
         return configurationProvider.isDirty();
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return configurationProvider.isDirtyTracked();
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public ConfigurationComponent fork() {
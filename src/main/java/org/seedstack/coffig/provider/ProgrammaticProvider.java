@@ -20,6 +20,7 @@ import org.seedstack.coffig.internal.ConfigurationException;
 import org.seedstack.coffig.node.MapNode;
 import org.seedstack.coffig.spi.ConfigurationComponent;
 import org.seedstack.coffig.spi.ConfigurationProvider;
+import org.seedstack.coffig.spi.ModificationCounter;
 
 public class ProgrammaticProvider implements ConfigurationProvider, ConfigurationComponent {
     private final Map<Supplier<Object>, String> suppliers = new HashMap<>();
@@ -36,6 +37,11 @@ public class ProgrammaticProvider implements ConfigurationProvider, Configuratio
         return dirty.get();
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return true;
+    }
+
     @Override
     public ConfigurationProvider fork() {
         ProgrammaticProvider fork = new ProgrammaticProvider();
@@ -73,11 +79,13 @@ public class ProgrammaticProvider implements ConfigurationProvider, Configuratio
     public void addSupplier(Supplier<Object> supplier) {
         suppliers.put(supplier, null);
         dirty.set(true);
+        ModificationCounter.increment();
     }
 
     public void addSupplier(Supplier<Object> supplier, String prefix) {
         suppliers.put(supplier, prefix);
         dirty.set(true);
+        ModificationCounter.increment();
     }
 
     private TreeNode retrieveTreeNode(Supplier<Object> supplier) {
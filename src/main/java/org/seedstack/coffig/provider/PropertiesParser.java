@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Parses properties files with the syntax of {@link Properties#load(InputStream)}: ISO 8859-1 encoding, comments,
+ * line continuations, key/value separators and escape sequences. Sources are decoded directly from the bytes given by
+ * the {@link SourceReader}, which memory-maps large files.
+ *
+ * <p>Contrary to {@link Properties}, the result is an unsynchronized map ordered as in the source: a key defined more
+ * than once takes its last value and the position of its last definition. Setting the keys in the tree in this order
+ * makes the last definition win when keys conflict (like "a" and "a.b") and sets array items in ascending order when
+ * they are defined so.</p>
+ */
+class PropertiesParser {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int offset;
+    private char[] lineBuf = new char[1024];
+    private char[] convertBuf = new char[1024];
+
+    private PropertiesParser(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Parses the properties of the specified URL.
+     *
+     * @param url the URL of the properties file.
+     * @return the properties, ordered by their last definition in the file.
+     * @throws IOException if the properties cannot be read.
+     */
+    static Map<String, String> parse(URL url) throws IOException {
+        return new PropertiesParser(SourceReader.read(url)).parse();
+    }
+
+    static Map<String, String> parse(byte[] bytes) {
+        return new PropertiesParser(ByteBuffer.wrap(bytes)).parse();
+    }
+
+    private Map<String, String> parse() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        int lineLength;
+        while ((lineLength = readLine()) >= 0) {
+            int keyLength = 0;
+            int valueStart = lineLength;
+            boolean hasSeparator = false;
+            boolean precedingBackslash = false;
+            while (keyLength < lineLength) {
+                char c = lineBuf[keyLength];
+                if ((c == '=' || c == ':') && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    hasSeparator = true;
+                    break;
+                } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    break;
+                }
+                precedingBackslash = c == '\\' && !precedingBackslash;
+                keyLength++;
+            }
+            while (valueStart < lineLength) {
+                char c = lineBuf[valueStart];
+                if (c != ' ' && c != '\t' && c != '\f') {
+                    if (!hasSeparator && (c == '=' || c == ':')) {
+                        hasSeparator = true;
+                    } else {
+                        break;
+                    }
+                }
+                valueStart++;
+            }
+            String key = convert(0, keyLength);
+            String value = convert(valueStart, lineLength - valueStart);
+            if (properties.put(key, value) != null) {
+                // Redefined keys are moved to the position of their last definition
+                properties.remove(key);
+                properties.put(key, value);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Reads the next logical line in the line buffer, skipping blank and comment lines, joining continued lines and
+     * removing leading whitespace.
+     *
+     * @return the length of the line or -1 if there are no more lines.
+     */
+    private int readLine() {
+        int length = 0;
+        boolean skipWhiteSpace = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+
+        while (true) {
+            if (offset >= limit) {
+                if (length == 0) {
+                    return -1;
+                }
+                return precedingBackslash ? length - 1 : length;
+            }
+            char c = (char) (buffer.get(offset++) & 0xFF);
+
+            if (skipWhiteSpace) {
+                if (c == ' ' || c == '\t' || c == '\f') {
+                    continue;
+                }
+                if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+                    continue;
+                }
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+            if (length == 0 && (c == '#' || c == '!')) {
+                // Comment on a new logical line: skip the rest of the line, including its terminator
+                if (!skipComment()) {
+                    return -1;
+                }
+                skipWhiteSpace = true;
+                continue;
+            }
+
+            if (c != '\n' && c != '\r') {
+                if (length == lineBuf.length) {
+                    lineBuf = Arrays.copyOf(lineBuf, length * 2);
+                }
+                lineBuf[length++] = c;
+                precedingBackslash = c == '\\' && !precedingBackslash;
+            } else if (length == 0) {
+                skipWhiteSpace = true;
+            } else if (offset >= limit) {
+                return precedingBackslash ? length - 1 : length;
+            } else if (precedingBackslash) {
+                // Continued on the next line, without the backslash and the leading whitespace
+                length--;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+                if (c == '\r' && buffer.get(offset) == '\n') {
+                    offset++;
+                }
+            } else {
+                return length;
+            }
+        }
+    }
+
+    private boolean skipComment() {
+        while (offset < limit) {
+            byte b = buffer.get(offset++);
+            if (b == '\n' || b == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the escape sequences of a part of the line buffer.
+     */
+    private String convert(int start, int length) {
+        int end = start + length;
+        int escape = start;
+        while (escape < end && lineBuf[escape] != '\\') {
+            escape++;
+        }
+        if (escape == end) {
+            return new String(lineBuf, start, length);
+        }
+
+        if (convertBuf.length < length) {
+            convertBuf = new char[Math.max(length, convertBuf.length * 2)];
+        }
+        int outLength = escape - start;
+        System.arraycopy(lineBuf, start, convertBuf, 0, outLength);
+        int i = escape;
+        while (i < end) {
+            char c = lineBuf[i++];
+            if (c == '\\' && i < end) {
+                c = lineBuf[i++];
+                if (c == 'u') {
+                    if (i + 4 > end) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+                    int value = 0;
+                    for (int j = 0; j < 4; j++) {
+                        value = (value << 4) + hexDigit(lineBuf[i++]);
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            convertBuf[outLength++] = c;
+        }
+        return new String(convertBuf, 0, outLength);
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+    }
+}
@@ -7,42 +7,47 @@
  */
 package org.seedstack.coffig.provider;
 
+import org.seedstack.coffig.TreeNode;
 import org.seedstack.coffig.internal.ConfigurationErrorCode;
 import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.node.ArrayNode;
 import org.seedstack.coffig.node.MapNode;
+import org.seedstack.coffig.node.Path;
 import org.seedstack.coffig.node.ValueNode;
 import org.seedstack.coffig.spi.ConfigurationProvider;
 import org.seedstack.coffig.spi.ConfigurationWatcher;
+import org.seedstack.coffig.spi.ModificationCounter;
 import org.seedstack.coffig.watcher.FileConfigurationWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PropertiesProvider implements ConfigurationProvider, FileConfigurationWatcher.Listener {
     private static final Logger LOGGER = LoggerFactory.getLogger(PropertiesProvider.class);
     private final List<URL> sources = new ArrayList<>();
+    private static final ConcurrentMap<String, MapNode> ARCHIVE_TREES = new ConcurrentHashMap<>();
     private final AtomicBoolean dirty = new AtomicBoolean(true);
     private final FileConfigurationWatcher fileWatcher = FileConfigurationWatcher.getInstance();
+    private final SourceCache sourceCache = new SourceCache(PropertiesProvider::buildTreeFromUrl, ARCHIVE_TREES);
 
     @Override
     public synchronized MapNode provide() {
-        MapNode mapNode = sources
-                .stream()
-                .peek(url -> LOGGER.debug("Reading configuration from " + url.toExternalForm()))
-                .map(PropertiesProvider::buildTreeFromUrl)
-                .reduce((conf1, conf2) -> (MapNode) conf1.merge(conf2))
-                .orElse(new MapNode());
+        MapNode mapNode = new MapNode();
+        for (URL url : sources) {
+            LOGGER.debug("Reading configuration from " + url.toExternalForm());
+            // Cached trees are copied as merging alters them
+            mapNode.merge(sourceCache.get(url).copy());
+        }
         dirty.set(false);
         return mapNode;
     }
@@ -61,6 +66,11 @@ public class PropertiesProvider implements ConfigurationProvider, FileConfigurat
         return dirty.get();
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return true;
+    }
+
     @Override
     public Set<ConfigurationWatcher> watchers() {
         HashSet<ConfigurationWatcher> configurationWatchers = new HashSet<>();
@@ -81,25 +91,71 @@ public class PropertiesProvider implements ConfigurationProvider, FileConfigurat
             }
         }
         dirty.set(true);
+        ModificationCounter.increment();
         return this;
     }
 
     @Override
-    public void fileChanged(Path path) {
+    public void fileChanged(java.nio.file.Path path) {
         LOGGER.debug("Configuration file has changed: " + path);
+        sourceCache.evict(path);
         dirty.set(true);
+        ModificationCounter.increment();
     }
 
     public static MapNode buildTreeFromUrl(URL url) {
-        try (InputStream inputStream = url.openStream()) {
+        try {
             MapNode mapNode = new MapNode();
-            Properties properties = new Properties();
-            properties.load(inputStream);
-            properties.forEach((key, value) -> mapNode.set((String) key, new ValueNode((String) value)));
+            // Keys are set in the order of the file, so the last definition wins when keys conflict
+            PropertiesParser.parse(url).forEach((key, value) -> set(mapNode, key, value));
             return mapNode;
         } catch (IOException e) {
             throw ConfigurationException.wrap(e, ConfigurationErrorCode.FAILED_TO_READ_CONFIGURATION)
                     .put("url", url.toExternalForm());
         }
     }
+
+    private static void set(MapNode mapNode, String key, String value) {
+        // Keys are only used once so they are not kept in the path cache
+        set(mapNode, Path.parse(key), new ValueNode(value));
+    }
+
+    private static void set(TreeNode parent, Path path, TreeNode treeNode) {
+        if (path.isArray() && parent.type() == TreeNode.Type.ARRAY_NODE) {
+            // Indices are not necessarily in ascending order so the array is grown up to the index
+            grow((ArrayNode) parent, path.getIndex());
+        }
+        if (path.hasTail()) {
+            Path headPath = headOf(path);
+            Path tailPath = path.getTailPath();
+            TreeNode.Type childType = tailPath.isArray() ? TreeNode.Type.ARRAY_NODE : TreeNode.Type.MAP_NODE;
+            TreeNode child = parent.get(headPath).orElse(null);
+            if (child == null || child.type() != childType) {
+                // A value defined before at a parent path (like "a" before "a.b") is replaced by the later key
+                child = tailPath.isArray() ? new ArrayNode() : new MapNode();
+                parent.setAt(headPath, child);
+            }
+            set(child, tailPath, treeNode);
+        } else {
+            parent.setAt(path, treeNode);
+        }
+    }
+
+    private static void grow(ArrayNode arrayNode, int index) {
+        for (long size = arrayNode.nodes().count(); size < index; size++) {
+            arrayNode.set(null, new ValueNode());
+        }
+    }
+
+    /**
+     * Returns the first segment of a path having a tail, without unescaping it so it can be parsed again.
+     */
+    private static Path headOf(Path path) {
+        String fullPath = path.toString();
+        int end = fullPath.length() - path.getTail().length();
+        if (fullPath.charAt(end - 1) == '.') {
+            end--;
+        }
+        return Path.parse(fullPath.substring(0, end));
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Execution strategies available to {@link CompositeProvider} for calling its providers.
+ */
+public final class ProviderExecutors {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProviderExecutors.class);
+    private static final Executor SEQUENTIAL = Runnable::run;
+
+    private ProviderExecutors() {
+        // no instantiation allowed
+    }
+
+    /**
+     * Returns an executor that calls providers one after the other in the calling thread.
+     *
+     * @return the sequential executor.
+     */
+    public static Executor sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * Returns an executor backed by a pool of daemon threads shared by all configurations of the process. Idle threads
+     * are released after one minute.
+     *
+     * @return the shared executor.
+     */
+    public static Executor shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per provider. Virtual threads require Java 21 or later: on older
+     * JVMs the {@link #shared()} executor is returned instead.
+     *
+     * @return the virtual thread executor or the shared executor if virtual threads are unavailable.
+     */
+    public static Executor virtualThreads() {
+        return VirtualThreadsHolder.INSTANCE;
+    }
+
+    static boolean isSequential(Executor executor) {
+        return executor == SEQUENTIAL;
+    }
+
+    private static class SharedHolder {
+        private static final Executor INSTANCE = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cfgProvider-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static class VirtualThreadsHolder {
+        private static final Executor INSTANCE;
+
+        static {
+            Executor detectedExecutor;
+            try {
+                detectedExecutor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.debug("Virtual threads are not available, falling back to the shared provider executor");
+                detectedExecutor = shared();
+            }
+            INSTANCE = detectedExecutor;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import org.seedstack.coffig.node.MapNode;
+
+/**
+ * Keeps the parsed tree of configuration sources to avoid parsing them again when they didn't change. File sources are
+ * checked for modification (last modified time and size) on each access. Sources located in archives cannot change
+ * during the lifetime of the process so they are parsed only once and shared through the specified map. Other sources
+ * are always parsed.
+ *
+ * <p>The cached trees must not be altered: callers must copy them before merging.</p>
+ */
+class SourceCache {
+    private final ConcurrentMap<Path, FileEntry> files = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MapNode> archives;
+    private final Function<URL, MapNode> parser;
+
+    SourceCache(Function<URL, MapNode> parser, ConcurrentMap<String, MapNode> archives) {
+        this.parser = parser;
+        this.archives = archives;
+    }
+
+    MapNode get(URL url) {
+        String protocol = url.getProtocol();
+        if ("file".equalsIgnoreCase(protocol)) {
+            return getFile(url);
+        } else if ("jar".equalsIgnoreCase(protocol)) {
+            return archives.computeIfAbsent(url.toExternalForm(), key -> parser.apply(url));
+        } else {
+            return parser.apply(url);
+        }
+    }
+
+    void evict(Path path) {
+        files.remove(path);
+    }
+
+    private MapNode getFile(URL url) {
+        Path path;
+        BasicFileAttributes attributes;
+        try {
+            path = Paths.get(url.toURI());
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            // let the parser report the problem if any
+            return parser.apply(url);
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        FileEntry fileEntry = files.get(path);
+        if (fileEntry == null || fileEntry.lastModified != lastModified || fileEntry.size != size) {
+            fileEntry = new FileEntry(lastModified, size, parser.apply(url));
+            files.put(path, fileEntry);
+        }
+        return fileEntry.tree;
+    }
+
+    private static class FileEntry {
+        private final long lastModified;
+        private final long size;
+        private final MapNode tree;
+
+        private FileEntry(long lastModified, long size, MapNode tree) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.tree = tree;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the content of configuration sources. Large files are memory-mapped, other sources are read in memory.
+ */
+final class SourceReader {
+    // Below this size, reading a file is cheaper than mapping it
+    private static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+    private SourceReader() {
+        // no instantiation allowed
+    }
+
+    static ByteBuffer read(URL url) throws IOException {
+        if ("file".equalsIgnoreCase(url.getProtocol())) {
+            Path path;
+            try {
+                path = Paths.get(url.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                path = null;
+            }
+            if (path != null) {
+                try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    long size = fileChannel.size();
+                    if (size >= MAPPING_THRESHOLD && size <= Integer.MAX_VALUE) {
+                        return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    }
+                }
+            }
+        }
+        try (InputStream inputStream = url.openStream()) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] bytes = new byte[8192];
+            int count;
+            while ((count = inputStream.read(bytes)) != -1) {
+                outputStream.write(bytes, 0, count);
+            }
+            return ByteBuffer.wrap(outputStream.toByteArray());
+        }
+    }
+}
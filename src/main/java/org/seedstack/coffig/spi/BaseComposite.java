@@ -39,6 +39,11 @@ public abstract class BaseComposite<T extends ConfigurationComponent> implements
         return Arrays.stream(items).anyMatch(ConfigurationComponent::isDirty);
     }
 
+    @Override
+    public boolean isDirtyTracked() {
+        return Arrays.stream(items).allMatch(ConfigurationComponent::isDirtyTracked);
+    }
+
     @Override
     public Set<ConfigurationWatcher> watchers() {
         Set<ConfigurationWatcher> configurationWatchers = new HashSet<>();
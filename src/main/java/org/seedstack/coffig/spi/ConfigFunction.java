@@ -18,4 +18,13 @@ import java.lang.annotation.Target;
 @Target({ElementType.METHOD})
 public @interface ConfigFunction {
     String value() default "";
+
+    /**
+     * Deterministic functions always return the same result for the same arguments. Their results are reused as long
+     * as the configuration doesn't change. Functions depending on anything else than their arguments (like time or
+     * mutable state) must set this attribute to false to be invoked on each evaluation.
+     *
+     * @return true if the function is deterministic, false otherwise.
+     */
+    boolean deterministic() default true;
 }
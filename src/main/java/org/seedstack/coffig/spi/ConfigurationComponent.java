@@ -30,6 +30,25 @@ public interface ConfigurationComponent {
         return false;
     }
 
+    /**
+     * Returns true if every transition of this component to the dirty state is signaled by incrementing the
+     * {@link ModificationCounter}. By default, a component is tracked if it doesn't override {@link #isDirty()}, as
+     * it is then immutable.
+     *
+     * <p>The result may change during the life of the component, for instance when a composite gains an untracked
+     * child. Configurations check it again on each update and each time the counter changes, so a component becoming
+     * untracked must also increment the {@link ModificationCounter}.</p>
+     *
+     * @return true if the dirty state of this component is tracked, false otherwise.
+     */
+    default boolean isDirtyTracked() {
+        try {
+            return getClass().getMethod("isDirty").getDeclaringClass() == ConfigurationComponent.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     default ConfigurationComponent fork() {
         // consider this as stateless (shareable) component by default
         return this;
@@ -14,6 +14,17 @@ import org.seedstack.coffig.node.MapNode;
 public interface ConfigurationProvider extends Callable<MapNode>, ConfigurationComponent {
     MapNode provide();
 
+    /**
+     * The precedence of this provider when its configuration is merged with the configuration of other providers.
+     * Providers with a higher precedence override the values of providers with a lower precedence. Providers with the
+     * same precedence are merged in registration order.
+     *
+     * @return the precedence of this provider, 0 by default.
+     */
+    default int precedence() {
+        return 0;
+    }
+
     @Override
     default MapNode call() throws Exception {
         return provide();
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.spi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monotonic counter of the transitions of configuration components to the dirty state, shared by all
+ * configurations. Components {@linkplain ConfigurationComponent#isDirtyTracked() tracking their dirty state} increment
+ * it each time they become dirty, after their {@link ConfigurationComponent#isDirty()} method starts returning true.
+ * A configuration only made of such components knows it is up to date as long as the counter has not changed since
+ * its last check, without asking each component.
+ */
+public final class ModificationCounter {
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private ModificationCounter() {
+        // no instantiation allowed
+    }
+
+    /**
+     * @return the current value of the counter.
+     */
+    public static long current() {
+        return COUNTER.get();
+    }
+
+    /**
+     * Signals that a component became dirty.
+     */
+    public static void increment() {
+        COUNTER.incrementAndGet();
+    }
+}
@@ -10,18 +10,30 @@ package org.seedstack.coffig;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
+import org.seedstack.coffig.evaluator.CompositeEvaluator;
+import org.seedstack.coffig.evaluator.FunctionEvaluator;
 import org.seedstack.coffig.fixture.EnumFixture;
 import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.mapper.EvaluatingMapper;
 import org.seedstack.coffig.node.ArrayNode;
 import org.seedstack.coffig.node.MapNode;
 import org.seedstack.coffig.node.NamedNode;
+import org.seedstack.coffig.provider.InMemoryProvider;
 import org.seedstack.coffig.provider.VoidProvider;
+import org.seedstack.coffig.spi.ConfigFunction;
 import org.seedstack.coffig.spi.ConfigurationProvider;
+import org.seedstack.coffig.spi.ModificationCounter;
 
 public class CoffigTest {
+    private final AtomicInteger deterministicCount = new AtomicInteger();
+    private final AtomicInteger nonDeterministicCount = new AtomicInteger();
     private String mutableValue1 = "bar";
     private String mutableValue2 = "val1";
     private String mutableValue3 = "val2";
@@ -39,6 +51,28 @@ public class CoffigTest {
                     new MapNode(new NamedNode("key1", mutableValue2), new NamedNode("key2", mutableValue3))),
             new NamedNode("items", "one"));
 
+    private final AtomicBoolean referencedValueChanged = new AtomicBoolean();
+    private Coffig readingCoffig;
+    private final ConfigurationProvider referencesConfigProvider = new ConfigurationProvider() {
+        @Override
+        public MapNode provide() {
+            referencedValueChanged.set(false);
+            return new MapNode(
+                    new NamedNode("db", new MapNode(new NamedNode("host", mutableValue1))),
+                    new NamedNode("app", new MapNode(
+                            new NamedNode("url", "http://${db.host}/app"),
+                            new NamedNode("name", "app"))),
+                    new NamedNode("tracked", new MapNode(
+                            new NamedNode("host", "$track(db.host)"),
+                            new NamedNode("constant", "$track('constant')"))));
+        }
+
+        @Override
+        public boolean isDirty() {
+            return referencedValueChanged.get();
+        }
+    };
+
     private final ConfigurationProvider classConfigProvider = () -> new MapNode(
             new NamedNode("someListClass", "java.lang.Object"));
 
@@ -81,6 +115,17 @@ public class CoffigTest {
         assertThat(appServerPort).isEqualTo(8080);
     }
 
+    @Test
+    public void testTreeIsEqualToProvidedTree() {
+        MapNode tree = new MapNode(new NamedNode("app", new MapNode(
+                new NamedNode("id", "foo"),
+                new NamedNode("tags", new ArrayNode("a", "b")))));
+        Coffig coffig = Coffig.builder().withProviders(tree::copy).build();
+        coffig.refresh();
+        assertThat(coffig.getTree()).isEqualTo(tree);
+        assertThat(tree).isEqualTo(coffig.getTree());
+    }
+
     @Test
     public void testGetOptionalWithPathAndDefaultValue() throws Exception {
         Coffig coffig = Coffig.builder().withProviders(appConfigProvider).build();
@@ -132,6 +177,409 @@ public class CoffigTest {
         assertThat(coffig.getOptional(String.class, "dotted\\.key").get()).isEqualTo("someValue");
     }
 
+    @Test
+    public void testMappingCache() {
+        Coffig coffig = Coffig.builder().withProviders(usersConfigProvider).build();
+        App app = coffig.get(App.class);
+        assertThat(coffig.get(App.class)).isSameAs(app);
+        assertThat(coffig.get(String.class, "id")).isEqualTo("bar");
+        mutableValue1 = "baz";
+        coffig.refresh();
+        assertThat(coffig.get(App.class)).isNotSameAs(app);
+        assertThat(coffig.get(App.class).id).isEqualTo("baz");
+        assertThat(coffig.get(String.class, "id")).isEqualTo("baz");
+    }
+
+    @Test
+    public void testMappingCacheDisabled() {
+        Coffig coffig = Coffig.builder().withProviders(usersConfigProvider).disableMappingCache().build();
+        assertThat(coffig.isMappingCacheEnabled()).isFalse();
+        assertThat(coffig.get(App.class)).isNotSameAs(coffig.get(App.class));
+        assertThat(coffig.fork().isMappingCacheEnabled()).isFalse();
+    }
+
+    @Test
+    public void testEvaluationCache() throws Exception {
+        Coffig coffig = Coffig.builder()
+                .withProviders(() -> new MapNode(
+                        new NamedNode("deterministic", "$countDeterministic()"),
+                        new NamedNode("nonDeterministic", "$countNonDeterministic()")))
+                .disableMappingCache()
+                .build();
+        FunctionEvaluator functionEvaluator = ((CompositeEvaluator) ((EvaluatingMapper) coffig.getMapper())
+                .getEvaluator()).get(FunctionEvaluator.class);
+        functionEvaluator.registerFunction("countDeterministic",
+                CoffigTest.class.getDeclaredMethod("countDeterministic"), this);
+        functionEvaluator.registerFunction("countNonDeterministic",
+                CoffigTest.class.getDeclaredMethod("countNonDeterministic"), this);
+        assertThat(coffig.get(String.class, "deterministic")).isEqualTo("1");
+        assertThat(coffig.get(Integer.class, "deterministic")).isEqualTo(1);
+        assertThat(coffig.get(String.class, "nonDeterministic")).isEqualTo("1");
+        assertThat(coffig.get(String.class, "nonDeterministic")).isEqualTo("2");
+        coffig.refresh();
+        assertThat(coffig.get(String.class, "deterministic")).isEqualTo("2");
+    }
+
+    @Test
+    public void testNonDeterministicResultsAreNotCached() throws Exception {
+        Coffig coffig = Coffig.builder()
+                .withProviders(() -> new MapNode(new NamedNode("nonDeterministic", "$countNonDeterministic()")))
+                .build();
+        ((CompositeEvaluator) ((EvaluatingMapper) coffig.getMapper()).getEvaluator()).get(FunctionEvaluator.class)
+                .registerFunction("countNonDeterministic",
+                        CoffigTest.class.getDeclaredMethod("countNonDeterministic"), this);
+        assertThat(coffig.get(String.class, "nonDeterministic")).isEqualTo("1");
+        assertThat(coffig.get(String.class, "nonDeterministic")).isEqualTo("2");
+    }
+
+    @Test
+    public void testEagerEvaluation() throws Exception {
+        Coffig coffig = Coffig.builder()
+                .withProviders(() -> new MapNode(
+                        new NamedNode("deterministic", "$countDeterministic()"),
+                        new NamedNode("nonDeterministic", "$countNonDeterministic()"),
+                        new NamedNode("escaped", "\\${deterministic}"),
+                        new NamedNode("circular1", "${circular2}"),
+                        new NamedNode("circular2", "${circular1}")))
+                .disableMappingCache()
+                .enableEagerEvaluation()
+                .build();
+        FunctionEvaluator functionEvaluator = ((CompositeEvaluator) ((EvaluatingMapper) coffig.getMapper())
+                .getEvaluator()).get(FunctionEvaluator.class);
+        functionEvaluator.registerFunction("countDeterministic",
+                CoffigTest.class.getDeclaredMethod("countDeterministic"), this);
+        functionEvaluator.registerFunction("countNonDeterministic",
+                CoffigTest.class.getDeclaredMethod("countNonDeterministic"), this);
+        coffig.refresh();
+        assertThat(deterministicCount.get()).isEqualTo(1);
+        assertThat(nonDeterministicCount.get()).isEqualTo(1);
+        assertThat(coffig.get(String.class, "deterministic")).isEqualTo("1");
+        assertThat(coffig.get(String.class, "deterministic")).isEqualTo("1");
+        assertThat(deterministicCount.get()).isEqualTo(1);
+        assertThat(coffig.get(String.class, "nonDeterministic")).isEqualTo("2");
+        assertThat(coffig.get(String.class, "nonDeterministic")).isEqualTo("3");
+        assertThat(coffig.get(String.class, "escaped")).isEqualTo("${deterministic}");
+        assertThat(coffig.get(String.class, "circular1")).contains("Circular reference");
+    }
+
+    @Test
+    public void testOnlyValuesDependingOnChangesAreEvaluatedAgain() throws Exception {
+        Coffig coffig = Coffig.builder().withProviders(referencesConfigProvider).disableMappingCache().build();
+        ((CompositeEvaluator) ((EvaluatingMapper) coffig.getMapper()).getEvaluator()).get(FunctionEvaluator.class)
+                .registerFunction("track", CoffigTest.class.getDeclaredMethod("track", String.class), this);
+        assertThat(coffig.get(String.class, "tracked.host")).isEqualTo("bar");
+        assertThat(coffig.get(String.class, "tracked.constant")).isEqualTo("constant");
+        assertThat(deterministicCount.get()).isEqualTo(2);
+        mutableValue1 = "baz";
+        referencedValueChanged.set(true);
+        assertThat(coffig.get(String.class, "tracked.host")).isEqualTo("baz");
+        assertThat(coffig.get(String.class, "tracked.constant")).isEqualTo("constant");
+        assertThat(deterministicCount.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testConfigurationReadByFunctionsIsTracked() throws Exception {
+        InMemoryProvider provider = new InMemoryProvider().put("value", "$read('other')").put("other", "foo");
+        readingCoffig = Coffig.builder().withProviders(provider).disableMappingCache().build();
+        ((CompositeEvaluator) ((EvaluatingMapper) readingCoffig.getMapper()).getEvaluator()).get(FunctionEvaluator.class)
+                .registerFunction("read", CoffigTest.class.getDeclaredMethod("read", String.class), this);
+        assertThat(readingCoffig.get(String.class, "value")).isEqualTo("foo");
+        provider.put("other", "bar");
+        assertThat(readingCoffig.get(String.class, "value")).isEqualTo("bar");
+    }
+
+    @Test
+    public void testFailedEvaluationsAreNotCached() throws Exception {
+        Coffig coffig = Coffig.builder().withProviders(new InMemoryProvider().put("value", "$track('foo')")).build();
+        assertThat(coffig.get(String.class, "value")).contains("Unknown function track");
+        ((CompositeEvaluator) ((EvaluatingMapper) coffig.getMapper()).getEvaluator()).get(FunctionEvaluator.class)
+                .registerFunction("track", CoffigTest.class.getDeclaredMethod("track", String.class), this);
+        assertThat(coffig.get(String.class, "value")).isEqualTo("foo");
+    }
+
+    @Test
+    public void testListenersOnReferencingValues() {
+        AtomicInteger urlCallCount = new AtomicInteger();
+        AtomicInteger nameCallCount = new AtomicInteger();
+        Coffig coffig = Coffig.builder().withProviders(referencesConfigProvider).build();
+        coffig.registerListener("app.url", c -> urlCallCount.incrementAndGet());
+        coffig.registerListener("app.name", c -> nameCallCount.incrementAndGet());
+        assertThat(coffig.get(String.class, "app.url")).isEqualTo("http://bar/app");
+        urlCallCount.set(0);
+        nameCallCount.set(0);
+        mutableValue1 = "baz";
+        referencedValueChanged.set(true);
+        assertThat(coffig.get(String.class, "app.url")).isEqualTo("http://baz/app");
+        assertThat(urlCallCount.get()).isEqualTo(1);
+        assertThat(nameCallCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testListenersOnReferencingValuesNeverRead() {
+        AtomicInteger urlCallCount = new AtomicInteger();
+        Coffig coffig = Coffig.builder().withProviders(referencesConfigProvider).build();
+        coffig.refresh();
+        coffig.registerListener("app.url", c -> urlCallCount.incrementAndGet());
+        mutableValue1 = "baz";
+        referencedValueChanged.set(true);
+        assertThat(coffig.get(String.class, "app.name")).isEqualTo("app");
+        assertThat(urlCallCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testListenedValuesAreNotEvaluatedOnUpdate() throws Exception {
+        AtomicInteger trackedCallCount = new AtomicInteger();
+        Coffig coffig = Coffig.builder().withProviders(referencesConfigProvider).build();
+        ((CompositeEvaluator) ((EvaluatingMapper) coffig.getMapper()).getEvaluator()).get(FunctionEvaluator.class)
+                .registerFunction("track", CoffigTest.class.getDeclaredMethod("track", String.class), this);
+        coffig.registerListener("tracked", c -> trackedCallCount.incrementAndGet());
+        assertThat(coffig.get(String.class, "tracked.host")).isEqualTo("bar");
+        assertThat(deterministicCount.get()).isEqualTo(1);
+        trackedCallCount.set(0);
+        mutableValue1 = "baz";
+        referencedValueChanged.set(true);
+        assertThat(coffig.get(String.class, "app.name")).isEqualTo("app");
+        assertThat(deterministicCount.get()).isEqualTo(1);
+        assertThat(trackedCallCount.get()).isEqualTo(1);
+        assertThat(coffig.get(String.class, "tracked.host")).isEqualTo("baz");
+        assertThat(deterministicCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAsyncListeners() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<String> seenValues = new ArrayList<>();
+        Coffig coffig = Coffig.builder().withProviders(usersConfigProvider).withListenerExecutor(tasks::add).build();
+        coffig.refresh();
+        coffig.registerListener("id", c -> {
+            seenValues.add(c.get(String.class, "id"));
+            if (seenValues.size() == 1) {
+                // A change during the notification is notified again once it completes
+                mutableValue1 = "last";
+                c.refresh();
+            }
+        });
+        mutableValue1 = "baz";
+        coffig.refresh();
+        mutableValue1 = "qux";
+        coffig.refresh();
+        assertThat(seenValues).isEmpty();
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        assertThat(seenValues).containsExactly("qux", "last");
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void testRejectedNotificationsAreScheduledAgain() {
+        List<Runnable> tasks = new ArrayList<>();
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        AtomicInteger callCount = new AtomicInteger();
+        Coffig coffig = Coffig.builder().withProviders(usersConfigProvider).withListenerExecutor(task -> {
+            if (rejecting.get()) {
+                throw new RejectedExecutionException("rejected");
+            }
+            tasks.add(task);
+        }).build();
+        coffig.refresh();
+        coffig.registerListener("id", c -> callCount.incrementAndGet());
+        coffig.registerListener("elements", c -> callCount.incrementAndGet());
+        mutableValue1 = "baz";
+        mutableValue2 = "qux";
+        coffig.refresh();
+        assertThat(tasks).isEmpty();
+        rejecting.set(false);
+        mutableValue1 = "last";
+        mutableValue2 = "last";
+        coffig.refresh();
+        assertThat(tasks).hasSize(2);
+        tasks.forEach(Runnable::run);
+        assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDirtyStateIsOnlyCheckedAfterModifications() {
+        AtomicInteger dirtyChecks = new AtomicInteger();
+        InMemoryProvider inMemoryProvider = new InMemoryProvider().put("key", "value1");
+        Coffig coffig = Coffig.builder().withProviders(inMemoryProvider, new ConfigurationProvider() {
+            @Override
+            public MapNode provide() {
+                return new MapNode();
+            }
+
+            @Override
+            public boolean isDirty() {
+                dirtyChecks.incrementAndGet();
+                return false;
+            }
+
+            @Override
+            public boolean isDirtyTracked() {
+                return true;
+            }
+        }).build();
+        assertThat(coffig.get(String.class, "key")).isEqualTo("value1");
+        dirtyChecks.set(0);
+        assertThat(coffig.get(String.class, "key")).isEqualTo("value1");
+        assertThat(dirtyChecks.get()).isEqualTo(0);
+        inMemoryProvider.put("key", "value2");
+        assertThat(coffig.get(String.class, "key")).isEqualTo("value2");
+        assertThat(coffig.get(String.class, "key")).isEqualTo("value2");
+        assertThat(dirtyChecks.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testComponentsBecomingUntrackedAreChecked() {
+        AtomicBoolean tracked = new AtomicBoolean(true);
+        AtomicBoolean dirty = new AtomicBoolean();
+        Coffig coffig = Coffig.builder().withProviders(new ConfigurationProvider() {
+            @Override
+            public MapNode provide() {
+                dirty.set(false);
+                return new MapNode(new NamedNode("key", mutableValue1));
+            }
+
+            @Override
+            public boolean isDirty() {
+                return dirty.get();
+            }
+
+            @Override
+            public boolean isDirtyTracked() {
+                return tracked.get();
+            }
+        }).build();
+        assertThat(coffig.get(String.class, "key")).isEqualTo("bar");
+        tracked.set(false);
+        ModificationCounter.increment();
+        assertThat(coffig.get(String.class, "key")).isEqualTo("bar");
+        // Not signaled anymore but checked since the component is no longer tracked
+        mutableValue1 = "baz";
+        dirty.set(true);
+        assertThat(coffig.get(String.class, "key")).isEqualTo("baz");
+    }
+
+    @Test
+    public void testBinding() {
+        Coffig coffig = Coffig.builder().withProviders(usersConfigProvider).build();
+        ConfigBinding<App> binding = coffig.bind(App.class);
+        App app = binding.get();
+        assertThat(app.id).isEqualTo("bar");
+        assertThat(binding.get()).isSameAs(app);
+        mutableValue1 = "baz";
+        coffig.refresh();
+        assertThat(binding.get().id).isEqualTo("baz");
+        assertThat(binding.get()).isSameAs(binding.get());
+        assertThat(coffig.bind(String.class, "unknown").get()).isEmpty();
+    }
+
+    @Test
+    public void testSnapshot() {
+        Coffig coffig = Coffig.builder().withProviders(usersConfigProvider).build();
+        ConfigSnapshot snapshot = coffig.snapshot();
+        mutableValue1 = "baz";
+        coffig.refresh();
+        assertThat(snapshot.get(String.class, "id")).isEqualTo("bar");
+        assertThat(snapshot.get(App.class).id).isEqualTo("bar");
+        assertThat(snapshot.getOptional(String.class, "unknown")).isEmpty();
+        assertThat(coffig.get(String.class, "id")).isEqualTo("baz");
+        assertThat(coffig.snapshot().getMandatory(String.class, "id")).isEqualTo("baz");
+    }
+
+    @Test
+    public void testSnapshotWithMacros() {
+        testSnapshotWithMacros(Coffig.builder().withProviders(referencesConfigProvider).build());
+    }
+
+    @Test
+    public void testSnapshotWithMacrosAndEagerEvaluation() {
+        testSnapshotWithMacros(Coffig.builder().withProviders(referencesConfigProvider).enableEagerEvaluation().build());
+    }
+
+    private void testSnapshotWithMacros(Coffig coffig) {
+        ConfigSnapshot snapshot = coffig.snapshot();
+        mutableValue1 = "baz";
+        referencedValueChanged.set(true);
+        assertThat(coffig.get(String.class, "app.url")).isEqualTo("http://baz/app");
+        assertThat(snapshot.get(String.class, "db.host")).isEqualTo("bar");
+        assertThat(snapshot.get(String.class, "app.url")).isEqualTo("http://bar/app");
+        assertThat(snapshot.get(String.class, "app.url")).isEqualTo("http://bar/app");
+        assertThat(coffig.get(String.class, "app.url")).isEqualTo("http://baz/app");
+        assertThat(coffig.snapshot().get(String.class, "app.url")).isEqualTo("http://baz/app");
+    }
+
+    @Test
+    public void testBackgroundRefresh() throws Exception {
+        Coffig coffig = Coffig.builder()
+                .withProviders(referencesConfigProvider)
+                .enableBackgroundRefresh(Duration.ofHours(1))
+                .build();
+        assertThat(coffig.get(String.class, "db.host")).isEqualTo("bar");
+        mutableValue1 = "baz";
+        referencedValueChanged.set(true);
+        // Readers don't refresh the configuration themselves
+        assertThat(coffig.get(String.class, "db.host")).isEqualTo("bar");
+        coffig.setBackgroundRefreshPeriod(Duration.ofMillis(10));
+        coffig.startWatching();
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"baz".equals(coffig.get(String.class, "db.host")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(coffig.get(String.class, "db.host")).isEqualTo("baz");
+        } finally {
+            coffig.stopWatching();
+        }
+        // The refresh thread is terminated when stopWatching() returns, even if it was waiting for an update
+        assertThat(Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> "cfgRefresher".equals(thread.getName()))).isFalse();
+    }
+
+    @Test
+    public void testBackgroundRefreshEnabledWhileWatching() throws Exception {
+        Coffig coffig = Coffig.builder().withProviders(referencesConfigProvider).build();
+        assertThat(coffig.get(String.class, "db.host")).isEqualTo("bar");
+        coffig.startWatching();
+        try {
+            coffig.setBackgroundRefreshPeriod(Duration.ofMillis(10));
+            mutableValue1 = "baz";
+            referencedValueChanged.set(true);
+            // The tree is read directly so the change can only be picked up by the background refresh
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!isDbHost(coffig, "baz") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(isDbHost(coffig, "baz")).isTrue();
+        } finally {
+            coffig.stopWatching();
+        }
+    }
+
+    private boolean isDbHost(Coffig coffig, String value) {
+        return coffig.getTree().get("db.host").map(TreeNode::value).filter(value::equals).isPresent();
+    }
+
+    @ConfigFunction
+    private String track(String value) {
+        deterministicCount.incrementAndGet();
+        return value;
+    }
+
+    @ConfigFunction
+    private String read(String path) {
+        return readingCoffig.get(String.class, path);
+    }
+
+    @ConfigFunction
+    private int countDeterministic() {
+        return deterministicCount.incrementAndGet();
+    }
+
+    @ConfigFunction(deterministic = false)
+    private int countNonDeterministic() {
+        return nonDeterministicCount.incrementAndGet();
+    }
+
     @Test
     public void testListeners() {
         AtomicInteger listener0CallCount = new AtomicInteger();
@@ -41,7 +41,9 @@ public class FunctionEvaluatorTest {
                     new NamedNode("rawNodeArg", "test: $rawNodeArg(object)!"),
                     new NamedNode("rawArrayNode", "test: $rawArrayNode()!"),
                     new NamedNode("rawMapNode", "test: $rawMapNode()!"),
-                    new NamedNode("rawValueNode", "test: $rawValueNode()!")
+                    new NamedNode("rawValueNode", "test: $rawValueNode()!"),
+                    new NamedNode("wrongArity", "$greet('World')"),
+                    new NamedNode("lateFunction", "$late()")
             ))
     );
 
@@ -104,6 +106,15 @@ public class FunctionEvaluatorTest {
         return functionEvaluator.evaluate(config, config.get(path).get()).value();
     }
 
+    @Test
+    public void testValuesWithoutCallsAreReturnedAsIs() throws Exception {
+        FunctionExpression.Invoker failingInvoker = (functionName, arguments) -> {
+            throw new IllegalStateException("No function expected");
+        };
+        assertThat(FunctionExpression.evaluate(config, "Hello World", failingInvoker).value()).isEqualTo("Hello World");
+        assertThat(FunctionExpression.evaluate(config, "", failingInvoker).value()).isEmpty();
+    }
+
     @Test
     public void testNoArgument() throws Exception {
         assertThat(evaluate("test.noArg")).isEqualTo("!");
@@ -164,6 +175,35 @@ public class FunctionEvaluatorTest {
         assertThat(evaluate("test.rawValueNode")).isEqualTo("test: val1!");
     }
 
+    @Test
+    public void testWrongNumberOfArguments() throws Exception {
+        assertThat(evaluate("test.wrongArity")).isEqualTo("<!! Function greet expects 2 argument(s) but 1 were given !!>");
+    }
+
+    @Test
+    public void testFunctionRegisteredAfterFirstEvaluation() throws Exception {
+        assertThat(evaluate("test.lateFunction")).isEqualTo("<!! Unknown function late !!>");
+        functionEvaluator.registerFunction("late", FunctionEvaluatorTest.class.getDeclaredMethod("prefix"), null);
+        assertThat(evaluate("test.lateFunction")).isEqualTo("!");
+    }
+
+    @Test
+    public void testInstanceFunction() throws Exception {
+        functionEvaluator.registerFunction("instanceGreet", Greeter.class.getDeclaredMethod("greet", String.class), new Greeter("Hi"));
+        assertThat(functionEvaluator.evaluate(config, new ValueNode("$instanceGreet('World')")).value()).isEqualTo("Hi World");
+    }
+
+    private static class Greeter {
+        private final String greeting;
+
+        private Greeter(String greeting) {
+            this.greeting = greeting;
+        }
+
+        private String greet(String name) {
+            return greeting + " " + name;
+        }
+    }
 
     private static class MappedClass {
         private String field1;
@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.seedstack.coffig.node.ArrayNode;
 import org.seedstack.coffig.node.MapNode;
 import org.seedstack.coffig.node.NamedNode;
+import org.seedstack.coffig.node.ValueNode;
 
 public class MacroEvaluatorTest {
     private MacroEvaluator macroEvaluator = new MacroEvaluator();
@@ -48,6 +49,9 @@ public class MacroEvaluatorTest {
 
                 new NamedNode("refOfRef", "${nullMacro}"),
 
+                new NamedNode("circular1", "${circular2}"),
+                new NamedNode("circular2", "before ${circular1} after"),
+
                 new NamedNode("test", new ArrayNode(
                         new MapNode(
                                 new NamedNode("message", "Hello ${key1}!")
@@ -151,6 +155,23 @@ public class MacroEvaluatorTest {
         assertThat(evaluate("test[14].message")).isEqualTo("fallback");
     }
 
+    @Test
+    public void testLoneQuoteIsAnError() throws Exception {
+        assertThat(macroEvaluator.evaluate(config, new ValueNode("${unknown:'}")).value()).startsWith("<!!");
+    }
+
+    @Test
+    public void testCircularReferenceIsAnError() throws Exception {
+        assertThat(evaluate("circular1")).isEqualTo("<!! [CONFIGURATION] Circular reference !!>");
+        assertThat(evaluate("refOfRef")).isEqualTo("null");
+    }
+
+    @Test
+    public void testCompiledExpressionsAreReused() throws Exception {
+        assertThat(MacroExpression.compile("Hello ${key1}!")).isSameAs(MacroExpression.compile("Hello ${key1}!"));
+        assertThat(MacroExpression.compile("Hello ${key1}!").evaluate(config)).isEqualTo("Hello World!");
+    }
+
     private String evaluate(String path) {
         return macroEvaluator.evaluate(config, config.get(path).get()).value();
     }
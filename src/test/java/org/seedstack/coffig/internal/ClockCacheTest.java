@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.internal;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClockCacheTest {
+    @Test
+    public void testCapacityIsBounded() {
+        ClockCache<Integer, String> cache = new ClockCache<>(3);
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.computeIfAbsent(i, String::valueOf)).isEqualTo(String.valueOf(i));
+        }
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testReadEntriesSurviveOneTimeEntries() {
+        ClockCache<String, String> cache = new ClockCache<>(4);
+        cache.putIfAbsent("hot1", "a");
+        cache.putIfAbsent("hot2", "b");
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get("hot1")).isEqualTo("a");
+            assertThat(cache.get("hot2")).isEqualTo("b");
+            cache.putIfAbsent("key" + i, "value");
+        }
+        assertThat(cache.get("hot1")).isEqualTo("a");
+        assertThat(cache.get("hot2")).isEqualTo("b");
+        assertThat(cache.get("key99")).isEqualTo("value");
+        assertThat(cache.get("key0")).isNull();
+    }
+
+    @Test
+    public void testNewEntriesAreCachedWhenFull() {
+        ClockCache<String, String> cache = new ClockCache<>(2);
+        cache.putIfAbsent("a", "a");
+        cache.putIfAbsent("b", "b");
+        cache.get("a");
+        cache.get("b");
+        cache.putIfAbsent("c", "c");
+        assertThat(cache.get("c")).isEqualTo("c");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsExistingValue() {
+        ClockCache<String, String> cache = new ClockCache<>(2);
+        assertThat(cache.putIfAbsent("a", "first")).isEqualTo("first");
+        assertThat(cache.putIfAbsent("a", "second")).isEqualTo("first");
+        cache.clear();
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+}
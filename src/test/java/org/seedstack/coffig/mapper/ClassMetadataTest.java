@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.mapper;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+import org.seedstack.coffig.fixture.PrefixFixture;
+import org.seedstack.coffig.fixture.SingleValueFixture;
+import org.seedstack.coffig.internal.ConfigurationException;
+
+public class ClassMetadataTest {
+    @Test
+    public void testMetadataIsComputedOnce() {
+        assertThat(ClassMetadata.of(PrefixFixture.class)).isSameAs(ClassMetadata.of(PrefixFixture.class));
+        assertThat(ClassMetadata.of(PrefixFixture.class)).isNotSameAs(ClassMetadata.of(SingleValueFixture.class));
+    }
+
+    @Test
+    public void testFieldKeys() {
+        assertThat(ClassMetadata.of(PrefixFixture.class).getFieldInfo().stream()
+                .map(fieldInfo -> fieldInfo.key)
+                .collect(toList())).containsOnly("aString", "baz", "qux");
+        assertThat(ClassMetadata.of(PrefixFixture.class).getValueFieldInfo()).isNull();
+    }
+
+    @Test
+    public void testValueField() {
+        ClassMetadata.FieldInfo valueFieldInfo = ClassMetadata.of(SingleValueFixture.InnerFixture.class)
+                .getValueFieldInfo();
+        assertThat(valueFieldInfo).isNotNull();
+        assertThat(valueFieldInfo.name).isEqualTo("enabled");
+    }
+
+    @Test
+    public void testSetterErrorsAreBuiltOnEachCall() {
+        ClassMetadata.FieldInfo fieldInfo = ClassMetadata.of(FailingSetterFixture.class).getFieldInfo().get(0);
+        Throwable first = catchSetterException(fieldInfo, "exception");
+        Throwable second = catchSetterException(fieldInfo, "exception");
+        assertThat(first).isInstanceOf(ConfigurationException.class).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(second).isNotSameAs(first);
+    }
+
+    @Test
+    public void testErrorsArePropagated() {
+        ClassMetadata.FieldInfo fieldInfo = ClassMetadata.of(FailingSetterFixture.class).getFieldInfo().get(0);
+        assertThatThrownBy(() -> fieldInfo.set(new FailingSetterFixture(), "error"))
+                .isInstanceOf(AssertionError.class);
+    }
+
+    private Throwable catchSetterException(ClassMetadata.FieldInfo fieldInfo, String value) {
+        try {
+            fieldInfo.set(new FailingSetterFixture(), value);
+        } catch (Throwable t) {
+            return t;
+        }
+        throw new AssertionError("Setter did not fail");
+    }
+
+    private static class FailingSetterFixture {
+        private String value;
+
+        public void setValue(String value) {
+            if ("error".equals(value)) {
+                throw new AssertionError(value);
+            }
+            throw new IllegalStateException(value);
+        }
+    }
+}
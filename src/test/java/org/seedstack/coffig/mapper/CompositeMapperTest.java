@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.seedstack.coffig.TreeNode;
+import org.seedstack.coffig.node.ValueNode;
+import org.seedstack.coffig.spi.ConfigurationMapper;
+
+public class CompositeMapperTest {
+    private final AtomicInteger canHandleCalls = new AtomicInteger();
+    private final CompositeMapper compositeMapper = new CompositeMapper(new CountingMapper());
+
+    @Test
+    public void testResolutionIsCachedPerType() {
+        assertThat(compositeMapper.map(new ValueNode("foo"), String.class)).isEqualTo("FOO");
+        assertThat(compositeMapper.map(new ValueNode("bar"), String.class)).isEqualTo("BAR");
+        assertThat(compositeMapper.canHandle(String.class)).isTrue();
+        assertThat(canHandleCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testObjectMappingFallbackIsCached() {
+        assertThat(compositeMapper.canHandle(Fixture.class)).isFalse();
+        assertThat(compositeMapper.canHandle(Fixture.class)).isFalse();
+        assertThat(canHandleCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidationClearsResolutions() {
+        compositeMapper.canHandle(String.class);
+        compositeMapper.invalidate();
+        compositeMapper.canHandle(String.class);
+        assertThat(canHandleCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testForkStartsWithEmptyResolutions() {
+        compositeMapper.canHandle(String.class);
+        ((CompositeMapper) compositeMapper.fork()).canHandle(String.class);
+        assertThat(canHandleCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testParameterizedTypeResolutionIsCached() throws Exception {
+        Type type = Fixture.class.getDeclaredField("items").getGenericType();
+        assertThat(compositeMapper.canHandle(type)).isFalse();
+        assertThat(compositeMapper.canHandle(type)).isFalse();
+        assertThat(canHandleCalls.get()).isEqualTo(1);
+    }
+
+    private static class Fixture {
+        private List<String> items;
+    }
+
+    private class CountingMapper implements ConfigurationMapper {
+        @Override
+        public boolean canHandle(Type type) {
+            canHandleCalls.incrementAndGet();
+            return type == String.class;
+        }
+
+        @Override
+        public Object map(TreeNode value, Type type) {
+            return value.value().toUpperCase();
+        }
+
+        @Override
+        public TreeNode unmap(Object object, Type type) {
+            return new ValueNode(String.valueOf(object));
+        }
+
+        @Override
+        public ConfigurationMapper fork() {
+            return new CountingMapper();
+        }
+    }
+}
@@ -279,6 +279,18 @@ public class ObjectMapperTest {
         assertThat(singleValueFixture.getInnerFixture().getValue()).isEqualTo(12);
     }
 
+    @Test
+    public void testPrivateAccessors() throws Exception {
+        PrivateAccessorFixture privateAccessorFixture = initialize(PrivateAccessorFixture.class)
+                .map(new MapNode(new NamedNode("field1", "field1"), new NamedNode("field2", "field2")));
+        assertThat(privateAccessorFixture.field1).isEqualTo("field1");
+        assertThat(privateAccessorFixture.field2).isEqualTo("field22");
+
+        TreeNode treeNode = initialize(privateAccessorFixture).unmap();
+        assertThat(treeNode.get("field1").get().value()).isEqualTo("field1");
+        assertThat(treeNode.get("field2").get().value()).isEqualTo("field222");
+    }
+
     private <T> ObjectMapper<T> initialize(Class<T> aClass) {
         ObjectMapper<T> mapper = new ObjectMapper<>(aClass);
         mapper.initialize(Coffig.basic());
@@ -290,4 +302,17 @@ public class ObjectMapperTest {
         mapper.initialize(Coffig.basic());
         return mapper;
     }
+
+    private static class PrivateAccessorFixture {
+        private final String field1 = null;
+        private String field2;
+
+        private String getField2() {
+            return field2 + "2";
+        }
+
+        private void setField2(String field2) {
+            this.field2 = field2 + "2";
+        }
+    }
 }
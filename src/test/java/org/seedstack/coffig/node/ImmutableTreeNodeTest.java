@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.node;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.seedstack.coffig.TreeNode;
+
+public class ImmutableTreeNodeTest {
+    private MapNode buildTree() {
+        return new MapNode(
+                new NamedNode("app", new MapNode(
+                        new NamedNode("id", "foo"),
+                        new NamedNode("tags", "a", "b"))),
+                new NamedNode("server", new MapNode(
+                        new NamedNode("port", "8080"))));
+    }
+
+    @Test
+    public void testContentIsPreserved() {
+        MapNode source = buildTree();
+        TreeNode immutable = ImmutableTreeNode.of(source);
+        assertThat(immutable.toString()).isEqualTo(source.toString());
+        assertThat(immutable.hashCode()).isEqualTo(source.hashCode());
+        assertThat(immutable.get("app.id").get().value()).isEqualTo("foo");
+        assertThat(immutable.get("app.tags[1]").get().value()).isEqualTo("b");
+        assertThat(immutable.get("app.unknown").isPresent()).isFalse();
+        assertThat(immutable.walk().count()).isEqualTo(source.walk().count());
+    }
+
+    @Test
+    public void testStructuralHashes() {
+        MapNode modified = buildTree();
+        modified.set("app.tags[1]", new ValueNode("c"));
+        TreeNode immutable = ImmutableTreeNode.of(buildTree());
+        TreeNode immutableModified = ImmutableTreeNode.of(modified);
+        assertThat(immutable.get("app.tags").get().hashCode()).isEqualTo(buildTree().get("app.tags").get().hashCode());
+        assertThat(immutableModified.hashCode()).isEqualTo(modified.hashCode());
+        assertThat(immutableModified.hashCode()).isNotEqualTo(immutable.hashCode());
+        assertThat(immutableModified).isNotEqualTo(immutable);
+        assertThat(ImmutableTreeNode.of(buildTree())).isEqualTo(immutable);
+        assertThat(ImmutableTreeNode.of(buildTree()).get("app.id").get()).isEqualTo(immutable.get("app.id").get());
+    }
+
+    @Test
+    public void testEqualityIsStructuralAcrossFamilies() {
+        MapNode source = buildTree();
+        TreeNode immutable = ImmutableTreeNode.of(source);
+        TreeNode unmodifiable = UnmodifiableTreeNode.of(buildTree());
+        assertThat(immutable).isEqualTo(source);
+        assertThat(source).isEqualTo(immutable);
+        assertThat(immutable).isEqualTo(unmodifiable);
+        assertThat(unmodifiable).isEqualTo(immutable);
+        assertThat(source).isEqualTo(unmodifiable);
+        assertThat(unmodifiable).isEqualTo(source);
+        assertThat(immutable.get("app.tags").get()).isEqualTo(source.get("app.tags").get());
+        assertThat(source.get("app.tags").get()).isEqualTo(immutable.get("app.tags").get());
+        assertThat(immutable.get("app.id").get()).isEqualTo(source.get("app.id").get());
+        assertThat(source.get("app.id").get()).isEqualTo(immutable.get("app.id").get());
+        TreeNode other = ImmutableTreeNode.of(buildTree());
+        assertThat(immutable).isEqualTo(other);
+        assertThat(other).isEqualTo(immutable);
+    }
+
+    @Test
+    public void testDifferentContentIsNotEqual() {
+        MapNode modified = buildTree();
+        modified.set("app.tags[1]", new ValueNode("c"));
+        TreeNode immutable = ImmutableTreeNode.of(buildTree());
+        assertThat(immutable).isNotEqualTo(modified);
+        assertThat(modified).isNotEqualTo(immutable);
+        modified = buildTree();
+        modified.set("app.other", new ValueNode("c"));
+        assertThat(immutable).isNotEqualTo(modified);
+        assertThat(modified).isNotEqualTo(immutable);
+        assertThat(immutable.get("app.id").get()).isNotEqualTo(new MapNode());
+    }
+
+    @Test
+    public void testReadsDoNotAllocateWrappers() {
+        TreeNode immutable = ImmutableTreeNode.of(buildTree());
+        assertThat(immutable.get("app").get()).isSameAs(immutable.get("app").get());
+        assertThat(immutable.get("app.id")).isSameAs(immutable.get("app.id"));
+        assertThat(immutable.namedNodes().findFirst().get()).isSameAs(immutable.namedNodes().findFirst().get());
+    }
+
+    @Test
+    public void testUnchangedSubtreesAreShared() {
+        TreeNode previous = ImmutableTreeNode.of(buildTree());
+        MapNode source = buildTree();
+        source.set("server.port", new ValueNode("9090"));
+        TreeNode next = ImmutableTreeNode.of(source, previous);
+        assertThat(next).isNotSameAs(previous);
+        assertThat(next.get("app").get()).isSameAs(previous.get("app").get());
+        assertThat(next.get("server.port").get().value()).isEqualTo("9090");
+        assertThat(ImmutableTreeNode.of(buildTree(), previous)).isSameAs(previous);
+    }
+
+    @Test
+    public void testHiddenFlagIsPreserved() {
+        MapNode source = buildTree();
+        source.get("app.id").get().hide();
+        TreeNode immutable = ImmutableTreeNode.of(source);
+        assertThat(immutable.get("app.id").get().isHidden()).isTrue();
+        assertThat(immutable.get("server.port").get().isHidden()).isFalse();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetIsNotAllowed() {
+        ImmutableTreeNode.of(buildTree()).set("app.id", new ValueNode("bar"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testHideIsNotAllowed() {
+        ImmutableTreeNode.of(buildTree()).get("app").get().hide();
+    }
+}
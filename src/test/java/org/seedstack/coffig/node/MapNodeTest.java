@@ -97,4 +97,23 @@ public class MapNodeTest {
         assertThat(mapNode.get("name").get().value()).isEqualTo("The foo app");
         assertThat(mapNode.get("foo").isPresent()).isFalse();
     }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetIsDispatchedToChildNodes() {
+        MapNode mapNode = new MapNode(new NamedNode("child", UnmodifiableTreeNode.of(new MapNode())));
+        mapNode.set("child.key", new ValueNode("value"));
+    }
+
+    @Test
+    public void testChildNodesCanOverrideCompiledSet() {
+        MapNode child = new MapNode() {
+            @Override
+            public TreeNode setAt(Path path, TreeNode treeNode) {
+                return super.setAt(path, new ValueNode(treeNode.value().toUpperCase()));
+            }
+        };
+        MapNode mapNode = new MapNode(new NamedNode("child", child));
+        mapNode.set("child.key", new ValueNode("value"));
+        assertThat(mapNode.get("child.key").get().value()).isEqualTo("VALUE");
+    }
 }
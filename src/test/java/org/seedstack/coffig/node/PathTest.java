@@ -81,4 +81,35 @@ public class PathTest {
         assertThat(path.hasTail()).isFalse();
         assertThat(path.getHead()).isEqualTo("a.b.c.d");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompiledTail() throws Exception {
+        Path path = new Path("a.b[2].c");
+        assertThat(path.getTailPath().getHead()).isEqualTo("b");
+        assertThat(path.getTailPath().getTail()).isEqualTo("[2].c");
+        assertThat(path.getTailPath().getTailPath().getIndex()).isEqualTo(2);
+        assertThat(path.getTailPath().getTailPath().getTailPath().getHead()).isEqualTo("c");
+        assertThat(path.getTailPath().getTailPath().getTailPath().hasTail()).isFalse();
+    }
+
+    @Test
+    public void testEscapedSeparatorWithTail() throws Exception {
+        Path path = new Path("a\\.b.c");
+        assertThat(path.getHead()).isEqualTo("a.b");
+        assertThat(path.getTail()).isEqualTo("c");
+    }
+
+    @Test
+    public void testNonNumericSubscription() throws Exception {
+        Path path = new Path("a[b]");
+        assertThat(path.getHead()).isEqualTo("a[b]");
+        assertThat(path.hasTail()).isFalse();
+        assertThat(path.isArray()).isFalse();
+    }
+
+    @Test
+    public void testCompiledPathsAreCached() throws Exception {
+        assertThat(Path.of("x.y.z")).isSameAs(Path.of("x.y.z"));
+        assertThat(Path.of("x.y.z")).isEqualTo(new Path("x.y.z"));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.node;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.util.Objects;
+import org.junit.Test;
+import org.seedstack.coffig.TreeNode;
+
+public class TreeDiffTest {
+    private static final String[] PATHS = {"", "app", "app.id", "app.tags", "app.tags[0]", "app.tags.1", "app.tags[2]",
+            "app.dotted\\.key", "server", "server.port", "server.port.sub", "server[0]", "db", "db.host", "unknown"};
+
+    private MapNode buildTree() {
+        return new MapNode(
+                new NamedNode("app", new MapNode(
+                        new NamedNode("id", "foo"),
+                        new NamedNode("dotted.key", "value"),
+                        new NamedNode("tags", "a", "b"))),
+                new NamedNode("server", new MapNode(
+                        new NamedNode("port", "8080"))));
+    }
+
+    @Test
+    public void testNoChange() {
+        TreeNode tree = ImmutableTreeNode.of(buildTree());
+        assertThat(TreeDiff.compute(tree, tree).isEmpty()).isTrue();
+        assertThat(TreeDiff.compute(buildTree(), buildTree()).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testChangesAreReportedAtTheirHighestPath() {
+        MapNode modified = buildTree();
+        modified.set("app.tags[2]", new ValueNode("c"));
+        modified.set("app.dotted\\.key", new ValueNode("other"));
+        modified.remove("server");
+        modified.set("db.host", new ValueNode("localhost"));
+        TreeDiff treeDiff = TreeDiff.compute(buildTree(), modified);
+        assertThat(treeDiff.getChanges()).containsOnly(
+                entry("app.tags[2]", TreeDiff.ChangeType.ADDED),
+                entry("app.dotted\\.key", TreeDiff.ChangeType.MODIFIED),
+                entry("server", TreeDiff.ChangeType.REMOVED),
+                entry("db", TreeDiff.ChangeType.ADDED));
+    }
+
+    @Test
+    public void testArrayItemsAreOnlyMatchedWithSubscripts() {
+        MapNode modified = buildTree();
+        modified.set("app.tags[1]", new ValueNode("c"));
+        TreeDiff treeDiff = TreeDiff.compute(buildTree(), modified);
+        assertThat(treeDiff.affects("app.tags[1]")).isTrue();
+        assertThat(treeDiff.affects("app.tags.1")).isFalse();
+        assertThat(modified.get("app.tags.1").isPresent()).isFalse();
+    }
+
+    @Test
+    public void testAffectsIsEquivalentToComparingNodes() {
+        MapNode[] variants = new MapNode[5];
+        for (int i = 0; i < variants.length; i++) {
+            variants[i] = buildTree();
+        }
+        variants[1].set("app.tags[1]", new ValueNode("c"));
+        variants[2].set("server.port", new MapNode(new NamedNode("sub", "1")));
+        variants[3].set("db.host", new ValueNode("localhost"));
+        variants[3].remove("app.id");
+        variants[4].set("server", new ArrayNode("x"));
+        for (MapNode oldTree : variants) {
+            for (MapNode newTree : variants) {
+                TreeNode immutableOld = ImmutableTreeNode.of(oldTree);
+                TreeNode immutableNew = ImmutableTreeNode.of(newTree, immutableOld);
+                TreeDiff treeDiff = TreeDiff.compute(immutableOld, immutableNew);
+                for (String path : PATHS) {
+                    assertThat(treeDiff.affects(path))
+                            .as(path)
+                            .isEqualTo(!Objects.equals(immutableOld.get(path), immutableNew.get(path)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.node.ArrayNode;
+import org.seedstack.coffig.node.MapNode;
+import org.seedstack.coffig.node.NamedNode;
+import org.seedstack.coffig.node.ValueNode;
+
+public class CompiledConfigProviderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MapNode tree = new MapNode(
+            new NamedNode("app", new MapNode(
+                    new NamedNode("name", "app"),
+                    new NamedNode("dotted.key", "été"),
+                    new NamedNode("empty", new MapNode()),
+                    new NamedNode("null", (String) null))),
+            new NamedNode("items", new ArrayNode(
+                    new ValueNode("app"),
+                    new MapNode(new NamedNode("key", "value")),
+                    new ArrayNode("a", "b"))));
+
+    @Test
+    public void testCompiledConfigContainsTheSameTree() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CompiledConfigProvider.writeCompiledConfig(tree, outputStream);
+        MapNode read = CompiledConfigFormat.read(ByteBuffer.wrap(outputStream.toByteArray()));
+        assertThat(read).isEqualTo(tree);
+        // Identical strings are shared
+        assertThat(read.get("app.name").get().value()).isSameAs(read.get("items[0]").get().value());
+    }
+
+    @Test
+    public void testInvalidCompiledConfig() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CompiledConfigProvider.writeCompiledConfig(tree, outputStream);
+        byte[] bytes = outputStream.toByteArray();
+        assertThatThrownBy(() -> CompiledConfigFormat.read(ByteBuffer.wrap(new byte[]{1, 2, 3})))
+                .isInstanceOf(ConfigurationException.class);
+        assertThatThrownBy(() -> CompiledConfigFormat.read(ByteBuffer.wrap(bytes, 0, bytes.length - 1)))
+                .isInstanceOf(ConfigurationException.class);
+    }
+
+    @Test
+    public void testCyclicCompiledConfig() throws IOException {
+        // The second node lists the entry pointing to itself
+        byte[] bytes = compiledConfig(new int[]{0, 1}, "a",
+                new int[][]{{1, 0, 1}, {1, 0, 1}},
+                new int[][]{{0, 1}});
+        assertThatThrownBy(() -> CompiledConfigFormat.read(ByteBuffer.wrap(bytes)))
+                .isInstanceOf(ConfigurationException.class);
+    }
+
+    @Test
+    public void testCompiledConfigWithMisplacedNodes() throws IOException {
+        byte[] bytes = compiledConfig(new int[]{0, 1}, "a",
+                new int[][]{{1, 0, 2}, {0, 0, 0}, {0, 0, 0}},
+                new int[][]{{0, 2}, {0, 1}});
+        assertThatThrownBy(() -> CompiledConfigFormat.read(ByteBuffer.wrap(bytes)))
+                .isInstanceOf(ConfigurationException.class);
+    }
+
+    @Test
+    public void testCompiledConfigWithInvalidStringOffsets() throws IOException {
+        byte[] bytes = compiledConfig(new int[]{0, Integer.MAX_VALUE}, "a",
+                new int[][]{{1, 0, 1}, {0, 0, 0}},
+                new int[][]{{0, 1}});
+        assertThatThrownBy(() -> CompiledConfigFormat.read(ByteBuffer.wrap(bytes)))
+                .isInstanceOf(ConfigurationException.class);
+    }
+
+    @Test
+    public void testProvideCompiledSources() throws IOException {
+        File compiledConfig = temporaryFolder.newFile("config.bin");
+        ConfigCompiler configCompiler = new ConfigCompiler()
+                .addSource(CompiledConfigProviderTest.class.getResource("/fixture.yaml"))
+                .addSource(CompiledConfigProviderTest.class.getResource("/fixture.properties"));
+        try (OutputStream outputStream = Files.newOutputStream(compiledConfig.toPath())) {
+            configCompiler.compile(outputStream);
+        }
+
+        CompiledConfigProvider compiledConfigProvider = new CompiledConfigProvider().addSource(compiledConfig.toURI().toURL());
+        MapNode mapNode = compiledConfigProvider.provide();
+        assertThat(mapNode).isEqualTo(configCompiler.buildTree());
+        assertThat(mapNode.get("jdbc.dataSources[0].name").get().value()).isEqualTo("myDS");
+        assertThat(mapNode.get("test.property").get().value()).isEqualTo("testValue");
+        assertThat(compiledConfigProvider.isDirty()).isFalse();
+    }
+
+    private byte[] compiledConfig(int[] stringOffsets, String stringData, int[][] nodes, int[][] entries) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        byte[] data = stringData.getBytes(StandardCharsets.UTF_8);
+        dataOutputStream.writeBytes("CFGS");
+        dataOutputStream.writeInt(1);
+        dataOutputStream.writeInt(stringOffsets.length - 1);
+        dataOutputStream.writeInt(nodes.length);
+        dataOutputStream.writeInt(entries.length);
+        for (int stringOffset : stringOffsets) {
+            dataOutputStream.writeInt(stringOffset);
+        }
+        dataOutputStream.writeInt(data.length);
+        dataOutputStream.write(data);
+        for (int[] node : nodes) {
+            for (int field : node) {
+                dataOutputStream.writeInt(field);
+            }
+        }
+        for (int[] entry : entries) {
+            dataOutputStream.writeInt(entry[0]);
+            dataOutputStream.writeInt(entry[1]);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.seedstack.coffig.internal.ConfigurationException;
+import org.seedstack.coffig.node.MapNode;
+import org.seedstack.coffig.node.NamedNode;
+import org.seedstack.coffig.node.ValueNode;
+import org.seedstack.coffig.spi.ConfigurationProvider;
+
+public class CompositeProviderTest {
+    private final AtomicInteger provideCount1 = new AtomicInteger();
+    private final AtomicInteger provideCount2 = new AtomicInteger();
+    private final InMemoryProvider provider1 = new InMemoryProvider() {
+        @Override
+        public MapNode provide() {
+            provideCount1.incrementAndGet();
+            return super.provide();
+        }
+    };
+    private final InMemoryProvider provider2 = new InMemoryProvider() {
+        @Override
+        public MapNode provide() {
+            provideCount2.incrementAndGet();
+            return super.provide();
+        }
+    };
+    private CompositeProvider compositeProvider;
+
+    @Before
+    public void setUp() {
+        provider1.put("a.b", "1");
+        provider1.put("a.c", "1");
+        provider2.put("a.b", "2");
+        compositeProvider = new CompositeProvider(provider1, provider2);
+    }
+
+    @Test
+    public void testOnlyDirtyProvidersAreCalled() {
+        MapNode first = compositeProvider.provide();
+        assertThat(first.get("a.b").get()).isEqualTo(new ValueNode("2"));
+        assertThat(first.get("a.c").get()).isEqualTo(new ValueNode("1"));
+        provider1.put("a.c", "3");
+        MapNode second = compositeProvider.provide();
+        assertThat(second.get("a.b").get()).isEqualTo(new ValueNode("2"));
+        assertThat(second.get("a.c").get()).isEqualTo(new ValueNode("3"));
+        assertThat(provideCount1.get()).isEqualTo(2);
+        assertThat(provideCount2.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLayersAreNotAlteredByMerging() {
+        MapNode first = compositeProvider.provide();
+        first.set("a.d", new ValueNode("4"));
+        assertThat(compositeProvider.provide()).isEqualTo(new CompositeProvider(provider1, provider2).provide());
+        assertThat(compositeProvider.provide().get("a.d").isPresent()).isFalse();
+    }
+
+    @Test
+    public void testInvalidationCallsAllProviders() {
+        compositeProvider.provide();
+        compositeProvider.invalidate();
+        compositeProvider.provide();
+        assertThat(provideCount1.get()).isEqualTo(2);
+        assertThat(provideCount2.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSequentialProviding() {
+        AtomicInteger otherThreadCount = new AtomicInteger();
+        Thread thread = Thread.currentThread();
+        CompositeProvider sequentialProvider = new CompositeProvider(ProviderExecutors.sequential(),
+                () -> countOtherThread(thread, otherThreadCount),
+                () -> countOtherThread(thread, otherThreadCount));
+        sequentialProvider.provide();
+        assertThat(otherThreadCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExecutorIsUsedAndKeptOnFork() {
+        AtomicInteger executedCount = new AtomicInteger();
+        Executor executor = runnable -> {
+            executedCount.incrementAndGet();
+            runnable.run();
+        };
+        CompositeProvider providerWithExecutor = new CompositeProvider(executor, provider1, provider2);
+        providerWithExecutor.provide();
+        // The calling thread takes one of the two providers
+        assertThat(executedCount.get()).isEqualTo(1);
+        ((CompositeProvider) providerWithExecutor.fork()).provide();
+        assertThat(executedCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testErrorsAreWrappedWhateverTheNumberOfProviders() {
+        ConfigurationProvider failingProvider = () -> {
+            throw new IllegalStateException("failure");
+        };
+        assertThatThrownBy(() -> new CompositeProvider(failingProvider).provide())
+                .isInstanceOf(ConfigurationException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new CompositeProvider(provider1, failingProvider, provider2).provide())
+                .isInstanceOf(ConfigurationException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new CompositeProvider(provider1, new CompositeProvider(provider2, failingProvider))
+                .provide())
+                .isInstanceOf(ConfigurationException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test(timeout = 10000)
+    public void testNestedCompositesOnBoundedExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            CompositeProvider nestedProvider = new CompositeProvider(executor,
+                    new CompositeProvider(executor, provider1, provider2),
+                    new CompositeProvider(executor, provider2, provider1),
+                    new CompositeProvider(executor, provider1, provider2));
+            assertThat(nestedProvider.provide().get("a.b").get()).isEqualTo(new ValueNode("2"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsOrFallback() {
+        CompositeProvider virtualProvider = new CompositeProvider(ProviderExecutors.virtualThreads(), provider1, provider2);
+        assertThat(virtualProvider.provide().get("a.b").get()).isEqualTo(new ValueNode("2"));
+    }
+
+    private MapNode countOtherThread(Thread thread, AtomicInteger otherThreadCount) {
+        if (Thread.currentThread() != thread) {
+            otherThreadCount.incrementAndGet();
+        }
+        return new MapNode();
+    }
+
+    @Test
+    public void testPrecedence() {
+        ConfigurationProvider highPrecedenceProvider = new ConfigurationProvider() {
+            @Override
+            public MapNode provide() {
+                return new MapNode(new NamedNode("a", new MapNode(new NamedNode("b", "high"))));
+            }
+
+            @Override
+            public int precedence() {
+                return 10;
+            }
+        };
+        MapNode result = new CompositeProvider(highPrecedenceProvider, provider1, provider2).provide();
+        assertThat(result.get("a.b").get()).isEqualTo(new ValueNode("high"));
+        assertThat(result.get("a.c").get()).isEqualTo(new ValueNode("1"));
+    }
+
+    @Test
+    public void testParallelMergeOfManySubtrees() {
+        for (int i = 0; i < 100; i++) {
+            provider1.put("key" + i + ".value", "1");
+            provider1.put("key" + i + ".other", "1");
+            provider2.put("key" + i + ".value", "2");
+        }
+        MapNode result = compositeProvider.provide();
+        for (int i = 0; i < 100; i++) {
+            assertThat(result.get("key" + i + ".value").get()).isEqualTo(new ValueNode("2"));
+            assertThat(result.get("key" + i + ".other").get()).isEqualTo(new ValueNode("1"));
+        }
+    }
+}
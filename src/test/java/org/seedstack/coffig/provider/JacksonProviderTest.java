@@ -7,9 +7,13 @@
  */
 package org.seedstack.coffig.provider;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
+import org.seedstack.coffig.node.ArrayNode;
 import org.seedstack.coffig.node.MapNode;
+import org.seedstack.coffig.node.ValueNode;
 
 public class JacksonProviderTest {
     @Test
@@ -46,4 +50,28 @@ public class JacksonProviderTest {
         Assertions.assertThat(mapNode.node("app").value()).isEqualTo("bar");
         Assertions.assertThat(mapNode.get("jdbc.dataSources[0].name").get().value()).isEqualTo("myDS");
     }
+
+    @Test
+    public void testScalarValuesAreConvertedLikeJacksonNodes() throws Exception {
+        MapNode mapNode = JacksonProvider.buildTreeFromString(new ObjectMapper(new YAMLFactory()), "plus: +12\n"
+                + "big: 12345678901234567890\n"
+                + "float: 1e3\n"
+                + "bool: yes\n"
+                + "tagged: !!str 5\n"
+                + "list: [1, ~, 'a']\n");
+        Assertions.assertThat(mapNode.get("plus").get().value()).isEqualTo("12");
+        Assertions.assertThat(mapNode.get("big").get().value()).isEqualTo("12345678901234567890");
+        Assertions.assertThat(mapNode.get("float").get().value()).isEqualTo("1000.0");
+        Assertions.assertThat(mapNode.get("bool").get().value()).isEqualTo("true");
+        Assertions.assertThat(mapNode.get("tagged").get().value()).isEqualTo("5");
+        Assertions.assertThat(mapNode.get("list").get()).isEqualTo(new ArrayNode(new ValueNode("1"),
+                new ValueNode((String) null), new ValueNode("a")));
+    }
+
+    @Test
+    public void testOnlyRootObjectsAreKept() throws Exception {
+        ObjectMapper jsonMapper = new ObjectMapper();
+        Assertions.assertThat(JacksonProvider.buildTreeFromString(jsonMapper, "")).isEqualTo(new MapNode());
+        Assertions.assertThat(JacksonProvider.buildTreeFromString(jsonMapper, "[1, 2]")).isEqualTo(new MapNode());
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PropertiesParserTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private static final String CONTENT = "# comment\n"
+            + "! other comment \\\n"
+            + "simple=value\n"
+            + "  indented : value with spaces  \n"
+            + "spaced value\n"
+            + "empty\n"
+            + "escaped\\ key\\=with\\:separators = \\tescaped\\nvalue\\\\\n"
+            + "unicode=\\u00e9t\\u00C9\n"
+            + "continued = first, \\\n"
+            + "    second, \\\r\n"
+            + "    third\r"
+            + "latin1=\u00e9\n"
+            + "\\#notComment=1\n"
+            + "duplicate=1\n"
+            + "duplicate=2\n"
+            + "last=no terminator\\";
+
+    @Test
+    public void testSyntaxIsTheSameAsProperties() throws IOException {
+        byte[] bytes = CONTENT.getBytes(StandardCharsets.ISO_8859_1);
+        Properties expected = new Properties();
+        expected.load(new ByteArrayInputStream(bytes));
+        Map<String, String> properties = PropertiesParser.parse(bytes);
+        assertThat(properties).isEqualTo(new HashMap<>(expected));
+        assertThat(properties.get("indented")).isEqualTo("value with spaces  ");
+        assertThat(properties.get("escaped key=with:separators")).isEqualTo("\tescaped\nvalue\\");
+        assertThat(properties.get("unicode")).isEqualTo("\u00e9t\u00c9");
+        assertThat(properties.get("continued")).isEqualTo("first, second, third");
+        assertThat(properties.get("latin1")).isEqualTo("\u00e9");
+        assertThat(properties.get("duplicate")).isEqualTo("2");
+        assertThat(properties.get("last")).isEqualTo("no terminator");
+        assertThat(properties).doesNotContainKey("other");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedUnicodeEscape() {
+        PropertiesParser.parse("key=\\u00g1".getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testFileIsParsed() throws IOException {
+        Map<String, String> properties = PropertiesParser.parse(
+                PropertiesParserTest.class.getResource("/fixture.properties"));
+        assertThat(properties.get("app")).isEqualTo("foo");
+        assertThat(properties.get("test.property")).isEqualTo("testValue");
+        assertThat(properties.get("empty")).isEmpty();
+    }
+
+    @Test
+    public void testLargeFileIsParsed() throws IOException {
+        File file = temporaryFolder.newFile("large.properties");
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.ISO_8859_1)) {
+            for (int i = 0; i < 50000; i++) {
+                writer.write("app.component" + i + ".setting = value " + i + "\n");
+            }
+        }
+        assertThat(file.length()).isGreaterThan(1024 * 1024);
+        Map<String, String> properties = PropertiesParser.parse(file.toURI().toURL());
+        assertThat(properties).hasSize(50000);
+        assertThat(properties.get("app.component49999.setting")).isEqualTo("value 49999");
+    }
+
+    @Test
+    public void testPropertiesAreOrderedByLastDefinition() {
+        Map<String, String> properties = PropertiesParser.parse(("a=1\nb=2\nitems[0]=x\nitems[1]=y\na=3\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        assertThat(properties.keySet()).containsExactly("b", "items[0]", "items[1]", "a");
+        assertThat(properties.get("a")).isEqualTo("3");
+    }
+}
@@ -7,12 +7,19 @@
  */
 package org.seedstack.coffig.provider;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import org.assertj.core.api.Assertions;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.seedstack.coffig.node.MapNode;
 
 public class PropertiesProviderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
     private PropertiesProvider propertiesProvider;
 
     @Test
@@ -37,4 +44,30 @@ public class PropertiesProviderTest {
         Assertions.assertThat(mapNode.node("empty").value()).isEmpty();
         Assertions.assertThat(mapNode.get("test.property").get().value()).isEqualTo("testValue");
     }
+
+    @Test
+    public void testKeysAreSetInFileOrder() throws Exception {
+        File file = temporaryFolder.newFile("ordered.properties");
+        Files.write(file.toPath(), "items[0]=a\nitems[1]=b\nitems[2]=c\nkey=value\nkey.sub=1\nother.sub=1\nother=value\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+        MapNode mapNode = PropertiesProvider.buildTreeFromUrl(file.toURI().toURL());
+
+        Assertions.assertThat(mapNode.get("items[2]").get().value()).isEqualTo("c");
+        Assertions.assertThat(mapNode.get("key.sub").get().value()).isEqualTo("1");
+        Assertions.assertThat(mapNode.get("other").get().value()).isEqualTo("value");
+    }
+
+    @Test
+    public void testArrayIndicesInAnyOrder() throws Exception {
+        File file = temporaryFolder.newFile("unordered.properties");
+        Files.write(file.toPath(), "items[1]=b\nitems[0]=a\nusers[2].name=c\nusers[0].name=a\nusers[1]=b\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+        MapNode mapNode = PropertiesProvider.buildTreeFromUrl(file.toURI().toURL());
+
+        Assertions.assertThat(mapNode.get("items[0]").get().value()).isEqualTo("a");
+        Assertions.assertThat(mapNode.get("items[1]").get().value()).isEqualTo("b");
+        Assertions.assertThat(mapNode.get("users[0].name").get().value()).isEqualTo("a");
+        Assertions.assertThat(mapNode.get("users[1]").get().value()).isEqualTo("b");
+        Assertions.assertThat(mapNode.get("users[2].name").get().value()).isEqualTo("c");
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2013-2021, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.coffig.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.seedstack.coffig.node.MapNode;
+
+public class SourceCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private final AtomicInteger parseCount = new AtomicInteger();
+    private final SourceCache sourceCache = new SourceCache(url -> {
+        parseCount.incrementAndGet();
+        return PropertiesProvider.buildTreeFromUrl(url);
+    }, new ConcurrentHashMap<>());
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile("test.properties");
+        Files.write(file.toPath(), "a=b".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testUnchangedFileIsParsedOnce() throws Exception {
+        MapNode first = sourceCache.get(file.toURI().toURL());
+        assertThat(sourceCache.get(file.toURI().toURL())).isSameAs(first);
+        assertThat(parseCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChangedFileIsParsedAgain() throws Exception {
+        sourceCache.get(file.toURI().toURL());
+        Files.write(file.toPath(), "a=bc".getBytes(StandardCharsets.UTF_8));
+        assertThat(sourceCache.get(file.toURI().toURL()).get("a").get().value()).isEqualTo("bc");
+        assertThat(parseCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEvictedFileIsParsedAgain() throws Exception {
+        sourceCache.get(file.toURI().toURL());
+        sourceCache.evict(file.toPath());
+        sourceCache.get(file.toURI().toURL());
+        assertThat(parseCount.get()).isEqualTo(2);
+    }
+}